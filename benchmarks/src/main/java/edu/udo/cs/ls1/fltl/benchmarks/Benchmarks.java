@@ -0,0 +1,25 @@
+package edu.udo.cs.ls1.fltl.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/***
+ * Runs the benchmarks with the GC profiler, so the allocation rate is
+ * reported along with the throughput and the percentiles of the latency. The
+ * arguments are the usual options of JMH, e.g. a regular expression that
+ * selects the benchmarks, or -p states=1000.
+ *
+ * @author Kai Sauerwald
+ *
+ */
+public class Benchmarks {
+
+	public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+		new Runner(new OptionsBuilder().parent(new CommandLineOptions(args)).addProfiler(GCProfiler.class).build())
+				.run();
+	}
+}
@@ -0,0 +1,75 @@
+package edu.udo.cs.ls1.fltl.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.RegExp;
+import edu.udo.cs.ls1.fltl.reg.bkw.BKW;
+import edu.udo.cs.ls1.fltl.reg.bkw.NotOneUnambiguousException;
+
+/***
+ * Benchmarks of {@link BKW#computeBKW(Automaton)} on families of automata
+ * that grow with n. The family random are random DFAs with n states, most of
+ * them have no DRE, so this measures how fast BKW fails.
+ *
+ * @author Kai Sauerwald
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BkwBenchmark {
+
+	@Param({ "(a|b)*a(a|b){n}", "(ab){n}", "random" })
+	String family;
+
+	@Param({ "4", "8", "12" })
+	int n;
+
+	Automaton automaton;
+
+	@Setup
+	public void setup() {
+		if (family.equals("random"))
+			automaton = RandomAutomata.automaton(8 * n, 2, 42);
+		else
+			automaton = new RegExp(family.replace("n", String.valueOf(n))).toAutomaton(true);
+	}
+
+	/***
+	 * computeBKW minimizes its argument, so every invocation works on a copy.
+	 *
+	 * @return the DRE, or the exception if there is none
+	 */
+	@Benchmark
+	public Object computeBKW() {
+		try {
+			return BKW.computeBKW(automaton.clone());
+		} catch (NotOneUnambiguousException e) {
+			return e;
+		}
+	}
+
+	/***
+	 * The copy of {@link #computeBKW()} alone, as baseline.
+	 */
+	@Benchmark
+	public Automaton copy() {
+		return automaton.clone();
+	}
+}
@@ -0,0 +1,112 @@
+package edu.udo.cs.ls1.fltl.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.udo.cs.ls1.fltl.Tuple;
+import edu.udo.cs.ls1.fltl.reg.FiniteStateAutomata;
+
+/***
+ * Benchmarks of the basic operations of {@link FiniteStateAutomata} on random
+ * DFAs.
+ *
+ * @author Kai Sauerwald
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FiniteStateAutomataBenchmark {
+
+	@Param({ "100", "10000" })
+	int states;
+
+	@Param({ "2", "26" })
+	int symbols;
+
+	/***
+	 * the length of the word for step
+	 */
+	static final int WORD_LENGTH = 1024;
+
+	FiniteStateAutomata<Integer, Character> fsa;
+	FiniteStateAutomata<Integer, Character> withUnreachable;
+	char[] word;
+
+	@Setup
+	public void setup() {
+		fsa = RandomAutomata.fsa(states, symbols, 42);
+
+		// a second copy of the states that is not reachable from the first
+		withUnreachable = new FiniteStateAutomata<>(fsa);
+		for (int q = 0; q < states; q++)
+			for (Tuple<Character, Integer> t : fsa.getTransitions(q))
+				withUnreachable.addTransition(states + q, t.first(), states + t.second());
+
+		Random rnd = new Random(7);
+		word = new char[WORD_LENGTH];
+		for (int i = 0; i < word.length; i++)
+			word[i] = (char) ('a' + rnd.nextInt(symbols));
+	}
+
+	/***
+	 * Runs the automata on a word of {@link #WORD_LENGTH} symbols.
+	 */
+	@Benchmark
+	public Integer step() {
+		Integer q = fsa.getInitialState();
+		for (char c : word)
+			q = fsa.step(q, c);
+		return q;
+	}
+
+	/***
+	 * Builds the automata transition by transition.
+	 */
+	@Benchmark
+	public FiniteStateAutomata<Integer, Character> addTransition() {
+		return RandomAutomata.fsa(states, symbols, 42);
+	}
+
+	@Benchmark
+	public void getTransitions(Blackhole bh) {
+		for (int q = 0; q < states; q++)
+			for (Tuple<Character, Integer> t : fsa.getTransitions(q))
+				bh.consume(t);
+	}
+
+	/***
+	 * Removes the unreachable half of the states. The copy that is needed for
+	 * every invocation is part of the measurement.
+	 */
+	@Benchmark
+	public FiniteStateAutomata<Integer, Character> removeUnreachable() {
+		FiniteStateAutomata<Integer, Character> copy = new FiniteStateAutomata<>(withUnreachable);
+		copy.removeUnreachable();
+		return copy;
+	}
+
+	/***
+	 * The copy of {@link #removeUnreachable()} alone, as baseline.
+	 */
+	@Benchmark
+	public FiniteStateAutomata<Integer, Character> copy() {
+		return new FiniteStateAutomata<>(withUnreachable);
+	}
+}
@@ -0,0 +1,67 @@
+package edu.udo.cs.ls1.fltl.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.udo.cs.ls1.fltl.graph.CsrGraph;
+import edu.udo.cs.ls1.fltl.graph.GraphHelper;
+import edu.udo.cs.ls1.fltl.graph.StronglyConnectedComponents;
+import edu.udo.cs.ls1.fltl.reg.FiniteStateAutomata;
+
+/***
+ * Benchmarks of the strongly connected components, that BKW computes in
+ * every recursion step. The Tarjan algorithm of {@link GraphHelper} runs on a
+ * {@link CsrGraph}.
+ *
+ * @author Kai Sauerwald
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphBenchmark {
+
+	@Param({ "100", "10000", "100000" })
+	int states;
+
+	@Param({ "1", "2" })
+	int symbols;
+
+	FiniteStateAutomata<Integer, Character> fsa;
+	CsrGraph<Integer> graph;
+
+	@Setup
+	public void setup() {
+		// with one symbol there are many small components, with two mostly
+		// one big component
+		fsa = RandomAutomata.fsa(states, symbols, 42);
+		graph = CsrGraph.fromAutomata(fsa);
+	}
+
+	@Benchmark
+	public StronglyConnectedComponents<Integer> computeSCC() {
+		return GraphHelper.computeSCC(graph);
+	}
+
+	/***
+	 * The SCCs including the construction of the graph, as in BKW.
+	 */
+	@Benchmark
+	public StronglyConnectedComponents<Integer> computeSCCFromAutomata() {
+		return GraphHelper.computeSCC(CsrGraph.fromAutomata(fsa));
+	}
+}
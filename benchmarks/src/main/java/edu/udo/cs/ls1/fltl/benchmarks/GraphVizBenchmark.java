@@ -0,0 +1,85 @@
+package edu.udo.cs.ls1.fltl.benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.RegExp;
+import edu.udo.cs.ls1.fltl.reg.Anzeige;
+import edu.udo.cs.ls1.fltl.reg.GraphVizWriter;
+
+/***
+ * Benchmarks of the GraphViz export of (a|b)*a(a|b){n}, which has 2^(n+1)
+ * states.
+ *
+ * @author Kai Sauerwald
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphVizBenchmark {
+
+	@Param({ "6", "10", "14" })
+	int n;
+
+	Automaton automaton;
+
+	@Setup
+	public void setup() {
+		automaton = new RegExp("(a|b)*a(a|b){" + n + "}").toAutomaton(true);
+	}
+
+	/***
+	 * The export to a String.
+	 */
+	@Benchmark
+	public String automataToGraphViz() {
+		return Anzeige.automataToGraphViz(automaton, "Graph", false);
+	}
+
+	/***
+	 * The export to a writer that only counts, without the String.
+	 */
+	@Benchmark
+	public void write(Blackhole bh) throws IOException {
+		Writer out = new Writer() {
+			@Override
+			public void write(char[] cbuf, int off, int len) {
+				bh.consume(len);
+			}
+
+			@Override
+			public Writer append(CharSequence csq) {
+				bh.consume(csq);
+				return this;
+			}
+
+			@Override
+			public void flush() {
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		GraphVizWriter.write(automaton, "Graph", false, out);
+	}
+}
@@ -0,0 +1,65 @@
+package edu.udo.cs.ls1.fltl.benchmarks;
+
+import java.util.Random;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.State;
+import dk.brics.automaton.Transition;
+import edu.udo.cs.ls1.fltl.reg.FiniteStateAutomata;
+
+/***
+ * Random complete DFAs for the benchmarks. The same seed gives the same
+ * automata, so the runs are comparable.
+ *
+ * @author Kai Sauerwald
+ *
+ */
+final class RandomAutomata {
+
+	private RandomAutomata() {
+	}
+
+	/***
+	 *
+	 * @param states
+	 * @param symbols
+	 *            the alphabet is a, b, ...
+	 * @param seed
+	 * @return a DFA where every state has a transition for every symbol and
+	 *         about half of the states are accepting
+	 */
+	static FiniteStateAutomata<Integer, Character> fsa(int states, int symbols, long seed) {
+		Random rnd = new Random(seed);
+		FiniteStateAutomata<Integer, Character> fsa = new FiniteStateAutomata<>(0);
+		for (int q = 0; q < states; q++)
+			fsa.addState(q);
+		for (int q = 0; q < states; q++) {
+			if (rnd.nextBoolean())
+				fsa.setAccepting(q, true);
+			for (int a = 0; a < symbols; a++)
+				fsa.addTransition(q, (char) ('a' + a), rnd.nextInt(states));
+		}
+		return fsa;
+	}
+
+	/***
+	 *
+	 * @return the same automata as {@link #fsa(int, int, long)}, for brics
+	 */
+	static Automaton automaton(int states, int symbols, long seed) {
+		Random rnd = new Random(seed);
+		State[] q = new State[states];
+		for (int i = 0; i < states; i++)
+			q[i] = new State();
+		for (int i = 0; i < states; i++) {
+			if (rnd.nextBoolean())
+				q[i].setAccept(true);
+			for (int a = 0; a < symbols; a++)
+				q[i].addTransition(new Transition((char) ('a' + a), q[rnd.nextInt(states)]));
+		}
+		Automaton aut = new Automaton();
+		aut.setInitialState(q[0]);
+		aut.setDeterministic(true);
+		return aut;
+	}
+}
@@ -37,9 +37,13 @@ public class Tuple<A, B> {
 		return s;
 	}
 	
+	/***
+	 * Combines the hashes with a prime, so (a,b) and (b,a) or a state and a
+	 * symbol with the same hash do not collide.
+	 */
 	@Override
 	public int hashCode() {
-		return f.hashCode() ^ s.hashCode();
+		return 31 * f.hashCode() + s.hashCode();
 	}
 
 	/***
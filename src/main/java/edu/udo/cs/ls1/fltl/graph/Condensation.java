@@ -0,0 +1,128 @@
+package edu.udo.cs.ls1.fltl.graph;
+
+import java.util.Arrays;
+
+/***
+ * The condensation of a graph, that is the directed acyclic graph of its
+ * strongly connected components. There is an edge from component c to
+ * component d (c != d) iff the graph has an edge from a vertex of c to a
+ * vertex of d. Every edge is present only once.
+ *
+ * Instances are immutable and can be shared between threads.
+ *
+ * @author Kai Sauerwald
+ *
+ * @param <V>
+ *            The type of the vertices
+ */
+public final class Condensation<V> {
+
+	private final StronglyConnectedComponents<V> components;
+
+	/***
+	 * the successors of component c are targets[offsets[c]..offsets[c+1]-1]
+	 */
+	private final int[] offsets;
+	private final int[] targets;
+
+	/***
+	 * Computes the condensation.
+	 *
+	 * @param components
+	 *            the components of the graph
+	 * @param offsets
+	 *            the adjacency of the graph, the neighbors of v are
+	 *            targets[offsets[v]..offsets[v+1]-1]
+	 * @param targets
+	 */
+	Condensation(StronglyConnectedComponents<V> components, int[] offsets, int[] targets) {
+		this.components = components;
+
+		int size = components.size();
+		int[] componentOffsets = new int[size + 1];
+		int[] componentTargets = new int[Math.max(targets.length, 1)];
+		// seen[d] == c + 1 iff the edge (c,d) is already present
+		int[] seen = new int[size];
+		int edges = 0;
+
+		for (int c = 0; c < size; c++) {
+			componentOffsets[c] = edges;
+			for (int i = components.getStart(c); i < components.getEnd(c); i++) {
+				int v = components.getMember(i);
+				for (int j = offsets[v]; j < offsets[v + 1]; j++) {
+					int d = components.getComponent(targets[j]);
+					if (d != c && seen[d] != c + 1) {
+						seen[d] = c + 1;
+						componentTargets[edges++] = d;
+					}
+				}
+			}
+		}
+		componentOffsets[size] = edges;
+
+		this.offsets = componentOffsets;
+		this.targets = Arrays.copyOf(componentTargets, edges);
+	}
+
+	/***
+	 *
+	 * @return the strongly connected components, that are the nodes of this
+	 *         graph.
+	 */
+	public StronglyConnectedComponents<V> getComponents() {
+		return components;
+	}
+
+	/***
+	 *
+	 * @return the number of components
+	 */
+	public int size() {
+		return components.size();
+	}
+
+	/***
+	 *
+	 * @return the number of edges between components
+	 */
+	public int getNumberOfEdges() {
+		return targets.length;
+	}
+
+	/***
+	 *
+	 * @param c
+	 *            a component
+	 * @return the number of components that are direct successors of c
+	 */
+	public int getOutDegree(int c) {
+		return offsets[c + 1] - offsets[c];
+	}
+
+	/***
+	 *
+	 * @param c
+	 *            a component
+	 * @param i
+	 *            a number between 0 and {@link #getOutDegree(int)}
+	 * @return the i-th successor of c
+	 */
+	public int getSuccessor(int c, int i) {
+		return targets[offsets[c] + i];
+	}
+
+	/***
+	 * The components ordered such that every edge goes from a smaller to a
+	 * greater position. Tarjans algorithm finds the components in reverse
+	 * topological order, so this is the reversed component numbering.
+	 *
+	 * @return a new array with the components in topological order
+	 */
+	public int[] getTopologicalOrder() {
+		int size = size();
+		int[] order = new int[size];
+		for (int i = 0; i < size; i++)
+			order[i] = size - 1 - i;
+		return order;
+	}
+}
@@ -0,0 +1,349 @@
+package edu.udo.cs.ls1.fltl.graph;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import edu.udo.cs.ls1.fltl.Tuple;
+import edu.udo.cs.ls1.fltl.reg.ReadOnlyFiniteStateAutomata;
+
+/***
+ * An immutable graph in compressed sparse row form. The vertices are numbered
+ * 0..n-1 and the neighbors of v are stored in one int range of a shared
+ * target array. So iterating the neighbors of a vertex takes O(1) per
+ * neighbor and touches only consecutive memory. Parallel edges are merged.
+ *
+ * @author Kai Sauerwald
+ *
+ * @param <V>
+ *            The type of the vertices
+ */
+public class CsrGraph<V> implements Graph<V> {
+
+	private final List<V> vertices;
+	private final Map<V, Integer> ids;
+
+	/***
+	 * the neighbors of v are targets[offsets[v]..offsets[v+1]-1]
+	 */
+	private final int[] offsets;
+	private final int[] targets;
+
+	/***
+	 * the graph with all edges reversed, computed on demand
+	 */
+	private volatile CsrGraph<V> reverse = null;
+
+	private CsrGraph(List<V> vertices, Map<V, Integer> ids, int[] offsets, int[] targets) {
+		this.vertices = vertices;
+		this.ids = ids;
+		this.offsets = offsets;
+		this.targets = targets;
+	}
+
+	/***
+	 * Builds the transition graph of an automata. There is an edge (p,q) iff
+	 * there is a transition from p to q.
+	 *
+	 * @param fsa
+	 * @return the graph
+	 */
+	public static <V, A> CsrGraph<V> fromAutomata(ReadOnlyFiniteStateAutomata<V, A> fsa) {
+		List<V> vertices = new ArrayList<>(fsa.getStates());
+		Map<V, Integer> ids = number(vertices);
+
+		// the number of transitions is not asked for, on a view it is a scan of
+		// all of them
+		Builder b = new Builder(vertices.size(), vertices.size());
+		for (int v = 0; v < vertices.size(); v++) {
+			b.startVertex();
+			for (Tuple<A, V> t : fsa.getTransitions(vertices.get(v)))
+				b.addTarget(ids.get(t.second()));
+		}
+		return new CsrGraph<>(vertices, ids, b.offsets, b.targets());
+	}
+
+	/***
+	 * Copies a graph.
+	 *
+	 * @param graph
+	 * @return the graph
+	 */
+	public static <V> CsrGraph<V> fromGraph(Graph<V> graph) {
+		if (graph instanceof CsrGraph)
+			return (CsrGraph<V>) graph;
+
+		List<V> vertices = new ArrayList<>(graph.getVertices());
+		Map<V, Integer> ids = number(vertices);
+
+		// group the edges by source
+		Set<Tuple<V, V>> edges = graph.getEdges();
+		int[] degree = new int[vertices.size() + 1];
+		for (Tuple<V, V> e : edges)
+			degree[ids.get(e.first()) + 1]++;
+		for (int v = 0; v < vertices.size(); v++)
+			degree[v + 1] += degree[v];
+		int[] pos = degree.clone();
+		int[] grouped = new int[edges.size()];
+		for (Tuple<V, V> e : edges)
+			grouped[pos[ids.get(e.first())]++] = ids.get(e.second());
+
+		Builder b = new Builder(vertices.size(), grouped.length);
+		for (int v = 0; v < vertices.size(); v++) {
+			b.startVertex();
+			for (int i = degree[v]; i < degree[v + 1]; i++)
+				b.addTarget(grouped[i]);
+		}
+		return new CsrGraph<>(vertices, ids, b.offsets, b.targets());
+	}
+
+	private static <V> Map<V, Integer> number(List<V> vertices) {
+		Map<V, Integer> ids = new HashMap<>(vertices.size() * 2);
+		for (int i = 0; i < vertices.size(); i++)
+			ids.put(vertices.get(i), i);
+		return ids;
+	}
+
+	/***
+	 * Fills the offset and target arrays vertex by vertex and drops parallel
+	 * edges. The number of edges is only the initial capacity, the target array
+	 * grows if there are more.
+	 */
+	private static class Builder {
+		final int[] offsets;
+		int[] targets;
+		/***
+		 * seen[w] == v + 1 iff w is already a neighbor of the current vertex v
+		 */
+		final int[] seen;
+		int vertex = -1;
+		int size = 0;
+
+		Builder(int vertices, int edges) {
+			offsets = new int[vertices + 1];
+			targets = new int[edges];
+			seen = new int[vertices];
+		}
+
+		void startVertex() {
+			offsets[++vertex] = size;
+			offsets[vertex + 1] = size;
+		}
+
+		void addTarget(int w) {
+			if (seen[w] == vertex + 1)
+				return;
+			seen[w] = vertex + 1;
+			if (size == targets.length)
+				targets = Arrays.copyOf(targets, Math.max(16, 2 * size));
+			targets[size++] = w;
+			offsets[vertex + 1] = size;
+		}
+
+		int[] targets() {
+			if (size == targets.length)
+				return targets;
+			int[] result = new int[size];
+			System.arraycopy(targets, 0, result, 0, size);
+			return result;
+		}
+	}
+
+	/***
+	 *
+	 * @return the graph with all edges reversed. It is computed on the first
+	 *         call and shares the vertex numbering with this graph.
+	 */
+	public CsrGraph<V> reverse() {
+		CsrGraph<V> result = reverse;
+		if (result == null) {
+			int n = size();
+			int[] reverseOffsets = new int[n + 1];
+			for (int i = 0; i < targets.length; i++)
+				reverseOffsets[targets[i] + 1]++;
+			for (int v = 0; v < n; v++)
+				reverseOffsets[v + 1] += reverseOffsets[v];
+			int[] pos = reverseOffsets.clone();
+			int[] reverseTargets = new int[targets.length];
+			for (int v = 0; v < n; v++)
+				for (int i = offsets[v]; i < offsets[v + 1]; i++)
+					reverseTargets[pos[targets[i]]++] = v;
+
+			result = new CsrGraph<>(vertices, ids, reverseOffsets, reverseTargets);
+			result.reverse = this;
+			reverse = result;
+		}
+		return result;
+	}
+
+	/***
+	 *
+	 * @return the number of vertices
+	 */
+	public int size() {
+		return vertices.size();
+	}
+
+	/***
+	 *
+	 * @return the number of edges
+	 */
+	public int getNumberOfEdges() {
+		return targets.length;
+	}
+
+	/***
+	 *
+	 * @param vertex
+	 * @return the id of vertex, or -1 if it is not part of the graph
+	 */
+	public int getId(V vertex) {
+		Integer id = ids.get(vertex);
+		return id == null ? -1 : id;
+	}
+
+	/***
+	 *
+	 * @param v
+	 *            a vertex id
+	 * @return the vertex with id v
+	 */
+	public V getVertex(int v) {
+		return vertices.get(v);
+	}
+
+	/***
+	 *
+	 * @return a read-only list of all vertices, indexed by id
+	 */
+	public List<V> getVertexList() {
+		return Collections.unmodifiableList(vertices);
+	}
+
+	/***
+	 *
+	 * @param v
+	 *            a vertex id
+	 * @return the number of neighbors of v
+	 */
+	public int getOutDegree(int v) {
+		return offsets[v + 1] - offsets[v];
+	}
+
+	/***
+	 *
+	 * @param v
+	 *            a vertex id
+	 * @param i
+	 *            a number between 0 and {@link #getOutDegree(int)}
+	 * @return the id of the i-th neighbor of v
+	 */
+	public int getNeighbor(int v, int i) {
+		return targets[offsets[v] + i];
+	}
+
+	/***
+	 * The neighbors of v are getTarget(getStart(v)) ..
+	 * getTarget(getEnd(v)-1).
+	 *
+	 * @param v
+	 *            a vertex id
+	 * @return the first position of the neighbors of v
+	 */
+	public int getStart(int v) {
+		return offsets[v];
+	}
+
+	/***
+	 *
+	 * @param v
+	 *            a vertex id
+	 * @return the position after the last neighbor of v
+	 */
+	public int getEnd(int v) {
+		return offsets[v + 1];
+	}
+
+	/***
+	 *
+	 * @param i
+	 *            a position
+	 * @return the id of the vertex at position i of the target array
+	 */
+	public int getTarget(int i) {
+		return targets[i];
+	}
+
+	/***
+	 * Shares the arrays with the algorithms in this package, they must not be
+	 * modified.
+	 */
+	int[] offsets() {
+		return offsets;
+	}
+
+	int[] targets() {
+		return targets;
+	}
+
+	@Override
+	public Set<V> getVertices() {
+		return Collections.unmodifiableSet(ids.keySet());
+	}
+
+	@Override
+	public Set<Tuple<V, V>> getEdges() {
+		Set<Tuple<V, V>> edges = new HashSet<>(targets.length * 2);
+		for (int v = 0; v < size(); v++)
+			for (int i = offsets[v]; i < offsets[v + 1]; i++)
+				edges.add(new Tuple<>(vertices.get(v), vertices.get(targets[i])));
+		return edges;
+	}
+
+	/***
+	 *
+	 * @param vertex
+	 * @return a read-only view on the neighbors of vertex
+	 */
+	@Override
+	public Set<V> getNeighbors(V vertex) {
+		Integer id = ids.get(vertex);
+		if (id == null)
+			return Collections.emptySet();
+		final int from = offsets[id];
+		final int to = offsets[id + 1];
+		return new AbstractSet<V>() {
+			@Override
+			public Iterator<V> iterator() {
+				return new Iterator<V>() {
+					int i = from;
+
+					@Override
+					public boolean hasNext() {
+						return i < to;
+					}
+
+					@Override
+					public V next() {
+						if (i >= to)
+							throw new NoSuchElementException();
+						return vertices.get(targets[i++]);
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return to - from;
+			}
+		};
+	}
+}
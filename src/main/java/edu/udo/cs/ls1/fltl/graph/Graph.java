@@ -1,6 +1,5 @@
 package edu.udo.cs.ls1.fltl.graph;
 
-import java.util.HashSet;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -21,11 +20,13 @@ public interface Graph<V> {
 	public Set<Tuple<V, V>> getEdges();
 
 	/***
+	 * The default implementation filters all edges, see {@link CsrGraph} for
+	 * a graph with fast neighbor queries.
 	 * 
 	 * @param vertex
 	 * @return
 	 */
 	public default Set<V> getNeighbors(V vertex) {
-		return getEdges().stream().filter(t -> t.first() == vertex).map(t -> t.second()).collect(Collectors.toSet());
+		return getEdges().stream().filter(t -> t.first().equals(vertex)).map(t -> t.second()).collect(Collectors.toSet());
 	}
 }
@@ -1,18 +1,18 @@
 package edu.udo.cs.ls1.fltl.graph;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
-import dk.brics.automaton.Automaton;
-import dk.brics.automaton.State;
 import edu.udo.cs.ls1.fltl.reg.FiniteStateAutomata;
+import edu.udo.cs.ls1.fltl.reg.ReadOnlyFiniteStateAutomata;
 
 /***
- * Provides methods for dealing with graphs
+ * Provides methods for dealing with graphs. The helper keeps no state between
+ * calls, everything is local to the called method. So one instance can be
+ * shared and used from several threads at the same time.
+ * 
  * @author Kai Sauerwald
  *
  * @param <S> The Type of the vertecies
@@ -33,113 +33,174 @@ public class GraphHelper<S, A> {
 		;
 	}
 
-	Integer index = 0;
-	HashSet<Set<S>> result = null;
-	LinkedList<Node> S = null;
-
 	/***
-	 * A Helperclass for The Tarjan algorithmn
+	 * This is an implementation of Tarjans strongly connected components
+	 * alogrithm.
+	 * 
+	 * @see <a href=
+	 *      "https://en.wikipedia.org/wiki/Tarjan%27s_strongly_connected_components_algorithm">Wikipedia</a>
 	 * 
-	 * @author Kai Sauerwald
-	 *
+	 * @param A
+	 * @return the set of strongly connected components
 	 */
-	private class Node {
-		public Node(S s, int i) {
-			this.state = s;
-			this.index = i;
-		}
-
-		/***
-		 * a index for the tarjan SCC algorithmn.
-		 */
-		int index;
-
-		/***
-		 * a index for the tarjan SCC algorithmn.
-		 */
-		int lowlink;
-
-		/***
-		 * a index for the tarjan SCC algorithmn.
-		 */
-		boolean onStack = false;
-
-		List<Node> neighbors = new ArrayList<>();
-
-		/***
-		 * The corresponding state
-		 */
-		S state;
-
-		@Override
-		public String toString() {
-			// TODO Auto-generated method stub
-			return "{" + "\nindex=" + index + "\nlowlink=" + lowlink + "\nonStack=" + onStack + "\nstate=" + state + "}";
-		}
+	public Set<Set<S>> tarjanSCC(ReadOnlyFiniteStateAutomata<S, A> A) {
+		return computeSCC(A).toSets();
 	}
 
 	/***
-	 * This is an implementation of Tarjans strongly connected components
-	 * alogrithm.
+	 * Computes the strongly connected components of the transition graph of
+	 * an automata in O(|Q|+|δ|).
 	 * 
 	 * @param A
-	 * 
-	 * @see <a href=
-	 *      "https://en.wikipedia.org/wiki/Tarjan%27s_strongly_connected_components_algorithm">Wikipedia</a>
+	 * @return the components
+	 */
+	public StronglyConnectedComponents<S> computeSCC(ReadOnlyFiniteStateAutomata<S, A> A) {
+		return computeSCC(CsrGraph.fromAutomata(A));
+	}
+
+	/***
+	 * Computes the condensation of the transition graph of an automata, that
+	 * is the DAG of its strongly connected components, in O(|Q|+|δ|).
 	 * 
 	 * @param A
-	 * @return
+	 * @return the condensation
 	 */
-	public Set<Set<S>> tarjanSCC(FiniteStateAutomata<S, A> A) {
-		result = new HashSet<>();
-		S = new LinkedList<>();
-
-		List<Node> V = A.getStates().stream().map(s -> new Node(s, -1)).collect(Collectors.toList());
-		computeNeighbors(V, A);
+	public Condensation<S> computeCondensation(ReadOnlyFiniteStateAutomata<S, A> A) {
+		return computeCondensation(CsrGraph.fromAutomata(A));
+	}
 
-		index = 0;
+	/***
+	 * Computes the strongly connected components of a graph in O(|V|+|E|).
+	 * 
+	 * @param graph
+	 * @return the components, the vertex ids are the ids of graph
+	 */
+	public static <V> StronglyConnectedComponents<V> computeSCC(CsrGraph<V> graph) {
+		return tarjanSCC(graph.getVertexList(), graph.offsets(), graph.targets());
+	}
 
-		for (Node v : V) {
-			if (v.index == -1)
-				strongconnect(v);
-		}
-		return result;
+	/***
+	 * Computes the condensation of a graph in O(|V|+|E|).
+	 * 
+	 * @param graph
+	 * @return the condensation
+	 */
+	public static <V> Condensation<V> computeCondensation(CsrGraph<V> graph) {
+		return new Condensation<>(computeSCC(graph), graph.offsets(), graph.targets());
 	}
 
-	private void computeNeighbors(List<Node> V, FiniteStateAutomata<S, A> A) {
-		for (Node v : V) {
-			V.stream().filter(w -> A.getTransitions(v.state).stream().anyMatch(t -> t.getSecond() == w.state))
-					.forEach(w -> v.neighbors.add(w));
+	/***
+	 * Computes all vertices that are reachable from source, by a breadth first
+	 * search in O(|V|+|E|).
+	 * 
+	 * @param graph
+	 * @param source
+	 *            a vertex id
+	 * @return the ids of the reachable vertices, including source
+	 */
+	public static <V> BitSet reachable(CsrGraph<V> graph, int source) {
+		BitSet reached = new BitSet(graph.size());
+		int[] queue = new int[graph.size()];
+		int head = 0;
+		int tail = 0;
+		reached.set(source);
+		queue[tail++] = source;
+		while (head < tail) {
+			int v = queue[head++];
+			for (int i = graph.getStart(v); i < graph.getEnd(v); i++) {
+				int w = graph.getTarget(i);
+				if (!reached.get(w)) {
+					reached.set(w);
+					queue[tail++] = w;
+				}
+			}
 		}
+		return reached;
 	}
 
-	private void strongconnect(Node v) {
-		v.index = index;
-		v.lowlink = index;
-		index = index + 1;
-		S.push(v);
-		v.onStack = true;
-
-		v.neighbors.forEach(w -> {
-			if (w.index == -1) {
-				strongconnect(w);
-				v.lowlink = Math.min(v.lowlink, w.lowlink);
-			} else if (w.onStack) {
-				v.lowlink = Math.min(v.lowlink, w.lowlink);
-			}
-		});
-
-		if (v.lowlink == v.index) {
-			// a scc is found
-			HashSet<S> scc = new HashSet<>();
-			Node w = null;
-			do{
-				w = S.pop();
-				w.onStack=false;
-				scc.add(w.state);
+	/***
+	 * Tarjans algorithm on a graph with vertices 0..n-1, where the neighbors
+	 * of v are targets[offsets[v]..offsets[v+1]-1]. The recursion is replaced
+	 * by an explicit stack, so this works for graphs of any depth.
+	 * 
+	 * @param vertices
+	 *            the vertex for every id
+	 * @param offsets
+	 * @param targets
+	 * @return the components
+	 */
+	static <V> StronglyConnectedComponents<V> tarjanSCC(List<V> vertices, int[] offsets, int[] targets) {
+		int n = vertices.size();
+		int[] index = new int[n];
+		int[] lowlink = new int[n];
+		boolean[] onStack = new boolean[n];
+		Arrays.fill(index, -1);
+
+		// the stack of Tarjans algorithm
+		int[] stack = new int[n];
+		int sp = 0;
+		// the call stack, with the position of the next edge for every vertex
+		int[] calls = new int[n];
+		int[] next = new int[n];
+		int cp = 0;
+
+		int[] component = new int[n];
+		int[] members = new int[n];
+		int[] componentOffsets = new int[n + 1];
+		int components = 0;
+		int found = 0;
+		int counter = 0;
+
+		for (int root = 0; root < n; root++) {
+			if (index[root] != -1)
+				continue;
+
+			index[root] = lowlink[root] = counter++;
+			stack[sp++] = root;
+			onStack[root] = true;
+			calls[cp++] = root;
+			next[root] = offsets[root];
+
+			while (cp > 0) {
+				int v = calls[cp - 1];
+				if (next[v] < offsets[v + 1]) {
+					int w = targets[next[v]++];
+					if (index[w] == -1) {
+						// "recursive" call on w
+						index[w] = lowlink[w] = counter++;
+						stack[sp++] = w;
+						onStack[w] = true;
+						calls[cp++] = w;
+						next[w] = offsets[w];
+					} else if (onStack[w]) {
+						lowlink[v] = Math.min(lowlink[v], index[w]);
+					}
+					continue;
+				}
+
+				// all neighbors of v are done
+				cp--;
+				if (lowlink[v] == index[v]) {
+					// a scc is found
+					componentOffsets[components] = found;
+					int w;
+					do {
+						w = stack[--sp];
+						onStack[w] = false;
+						component[w] = components;
+						members[found++] = w;
+					} while (w != v);
+					components++;
+				}
+				if (cp > 0) {
+					int u = calls[cp - 1];
+					lowlink[u] = Math.min(lowlink[u], lowlink[v]);
+				}
 			}
-			while(w != v);
-			result.add(scc);
 		}
+		componentOffsets[components] = found;
+
+		return new StronglyConnectedComponents<>(vertices, component, members,
+				Arrays.copyOf(componentOffsets, components + 1));
 	}
 }
@@ -0,0 +1,147 @@
+package edu.udo.cs.ls1.fltl.graph;
+
+import java.util.AbstractList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/***
+ * The strongly connected components of a graph whose vertices are numbered
+ * 0..n-1. The vertices of component c are stored in one int range, see
+ * {@link #getStart(int)} and {@link #getEnd(int)}. The components are
+ * numbered in the order Tarjans algorithm finds them, that is in reverse
+ * topological order.
+ *
+ * @author Kai Sauerwald
+ *
+ * @param <V>
+ *            The type of the vertices
+ */
+public class StronglyConnectedComponents<V> {
+
+	private final List<V> vertices;
+
+	/***
+	 * component[v] is the component of vertex v
+	 */
+	private final int[] component;
+
+	/***
+	 * the vertices, grouped by component
+	 */
+	private final int[] members;
+
+	/***
+	 * the vertices of component c are members[offsets[c]..offsets[c+1]-1]
+	 */
+	private final int[] offsets;
+
+	StronglyConnectedComponents(List<V> vertices, int[] component, int[] members, int[] offsets) {
+		this.vertices = vertices;
+		this.component = component;
+		this.members = members;
+		this.offsets = offsets;
+	}
+
+	/***
+	 *
+	 * @return the number of components
+	 */
+	public int size() {
+		return offsets.length - 1;
+	}
+
+	/***
+	 *
+	 * @return the number of vertices
+	 */
+	public int getNumberOfVertices() {
+		return component.length;
+	}
+
+	/***
+	 *
+	 * @param v
+	 *            a vertex id
+	 * @return the component of v
+	 */
+	public int getComponent(int v) {
+		return component[v];
+	}
+
+	/***
+	 *
+	 * @param c
+	 *            a component
+	 * @return the first position of c in {@link #getMember(int)}
+	 */
+	public int getStart(int c) {
+		return offsets[c];
+	}
+
+	/***
+	 *
+	 * @param c
+	 *            a component
+	 * @return the position after the last member of c in
+	 *         {@link #getMember(int)}
+	 */
+	public int getEnd(int c) {
+		return offsets[c + 1];
+	}
+
+	/***
+	 *
+	 * @param i
+	 *            a position between 0 and {@link #getNumberOfVertices()}
+	 * @return the vertex id at position i
+	 */
+	public int getMember(int i) {
+		return members[i];
+	}
+
+	/***
+	 *
+	 * @param v
+	 *            a vertex id
+	 * @return the vertex with id v
+	 */
+	public V getVertex(int v) {
+		return vertices.get(v);
+	}
+
+	/***
+	 *
+	 * @param c
+	 *            a component
+	 * @return a read-only list of the vertices of c
+	 */
+	public List<V> getVertices(int c) {
+		final int from = offsets[c];
+		final int size = offsets[c + 1] - from;
+		return new AbstractList<V>() {
+			@Override
+			public V get(int index) {
+				if (index < 0 || index >= size)
+					throw new IndexOutOfBoundsException();
+				return vertices.get(members[from + index]);
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	/***
+	 *
+	 * @return the components as set of sets of vertices
+	 */
+	public Set<Set<V>> toSets() {
+		Set<Set<V>> result = new HashSet<>();
+		for (int c = 0; c < size(); c++)
+			result.add(new HashSet<>(getVertices(c)));
+		return result;
+	}
+}
@@ -0,0 +1,282 @@
+package edu.udo.cs.ls1.fltl.metrics;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/***
+ * Counters and timers for the phases of the computations. They are global
+ * and thread-safe, and updating them takes no lock, so they are always on.
+ * The phases may be nested, e.g. the minimization of the sub-automata is part
+ * of the time of BKW.
+ *
+ * The values are available by JMX, after {@link #registerMBean()}, and can be
+ * written as CSV or JSON.
+ *
+ * @author Kai Sauerwald
+ *
+ */
+public final class Metrics {
+
+	public static final String OBJECT_NAME = "edu.udo.cs.ls1.fltl:type=Metrics";
+
+	/***
+	 * The timed phases. For every phase the number of runs, the total time
+	 * and the longest run are recorded.
+	 */
+	public enum Timer {
+		/***
+		 * parsing a regular expression
+		 */
+		REGEX_PARSE,
+		/***
+		 * building the minimal DFA of a regular expression with brics
+		 */
+		DFA_CONSTRUCTION,
+		/***
+		 * determinizing and minimizing an automata for BKW, and minimizing
+		 * the sub-automata
+		 */
+		MINIMIZATION,
+		/***
+		 * translating a brics automata for BKW
+		 */
+		FSA_CONVERSION,
+		/***
+		 * computing the orbits
+		 */
+		SCC,
+		/***
+		 * computing a DRE with BKW
+		 */
+		BKW,
+		/***
+		 * writing an automata for GraphViz
+		 */
+		DOT_EXPORT
+	}
+
+	/***
+	 * The counters of the recursion of BKW. A counter is a sum or a maximum.
+	 */
+	public enum Counter {
+		/***
+		 * the recursion steps of BKW that are no base case and not memoized
+		 */
+		BKW_CALLS(false),
+		/***
+		 * the deepest recursion step of BKW
+		 */
+		BKW_MAX_DEPTH(true),
+		/***
+		 * the orbits of the recursion steps of BKW
+		 */
+		BKW_ORBITS(false),
+		/***
+		 * the sub-automata of the recursion steps of BKW
+		 */
+		BKW_SUB_AUTOMATA(false),
+		/***
+		 * the states of the sub-automata
+		 */
+		BKW_SUB_AUTOMATA_STATES(false),
+		/***
+		 * the states of the biggest sub-automata
+		 */
+		BKW_MAX_SUB_AUTOMATA_STATES(true);
+
+		final boolean isMaximum;
+
+		Counter(boolean isMaximum) {
+			this.isMaximum = isMaximum;
+		}
+	}
+
+	private static final LongAdder[] runs = new LongAdder[Timer.values().length];
+	private static final LongAdder[] nanos = new LongAdder[Timer.values().length];
+	private static final LongAccumulator[] maxNanos = new LongAccumulator[Timer.values().length];
+	private static final LongAdder[] sums = new LongAdder[Counter.values().length];
+	private static final LongAccumulator[] maxima = new LongAccumulator[Counter.values().length];
+
+	static {
+		for (int i = 0; i < runs.length; i++) {
+			runs[i] = new LongAdder();
+			nanos[i] = new LongAdder();
+			maxNanos[i] = new LongAccumulator(Math::max, 0);
+		}
+		for (Counter c : Counter.values()) {
+			if (c.isMaximum)
+				maxima[c.ordinal()] = new LongAccumulator(Math::max, 0);
+			else
+				sums[c.ordinal()] = new LongAdder();
+		}
+	}
+
+	private Metrics() {
+	}
+
+	/***
+	 *
+	 * @return the start time for {@link #stop(Timer, long)}
+	 */
+	public static long start() {
+		return System.nanoTime();
+	}
+
+	/***
+	 * Records a run of a phase.
+	 *
+	 * @param timer
+	 * @param start
+	 *            the result of {@link #start()} at the begin of the run
+	 * @return the duration of the run in nanoseconds
+	 */
+	public static long stop(Timer timer, long start) {
+		long time = System.nanoTime() - start;
+		runs[timer.ordinal()].increment();
+		nanos[timer.ordinal()].add(time);
+		maxNanos[timer.ordinal()].accumulate(time);
+		return time;
+	}
+
+	/***
+	 * Adds to a counter, or raises a maximum to value.
+	 *
+	 * @param counter
+	 * @param value
+	 */
+	public static void count(Counter counter, long value) {
+		if (counter.isMaximum)
+			maxima[counter.ordinal()].accumulate(value);
+		else
+			sums[counter.ordinal()].add(value);
+	}
+
+	/***
+	 *
+	 * @return all values, by name, in a fixed order. For a phase x there are
+	 *         x.runs, x.nanos and x.max_nanos.
+	 */
+	public static Map<String, Long> getValues() {
+		Map<String, Long> values = new LinkedHashMap<>();
+		for (Timer t : Timer.values()) {
+			String name = t.name().toLowerCase(Locale.ROOT);
+			values.put(name + ".runs", runs[t.ordinal()].sum());
+			values.put(name + ".nanos", nanos[t.ordinal()].sum());
+			values.put(name + ".max_nanos", maxNanos[t.ordinal()].get());
+		}
+		for (Counter c : Counter.values())
+			values.put(c.name().toLowerCase(Locale.ROOT),
+					c.isMaximum ? maxima[c.ordinal()].get() : sums[c.ordinal()].sum());
+		return values;
+	}
+
+	/***
+	 * Sets all values to 0. Updates during the reset may be lost.
+	 */
+	public static void reset() {
+		for (int i = 0; i < runs.length; i++) {
+			runs[i].reset();
+			nanos[i].reset();
+			maxNanos[i].reset();
+		}
+		for (Counter c : Counter.values()) {
+			if (c.isMaximum)
+				maxima[c.ordinal()].reset();
+			else
+				sums[c.ordinal()].reset();
+		}
+	}
+
+	/***
+	 * Writes the values as CSV with the columns name and value.
+	 *
+	 * @param out
+	 * @throws IOException
+	 *             if out throws one
+	 */
+	public static void writeCsv(Appendable out) throws IOException {
+		out.append("name,value\n");
+		for (Map.Entry<String, Long> e : getValues().entrySet())
+			out.append(e.getKey()).append(',').append(e.getValue().toString()).append('\n');
+	}
+
+	/***
+	 * Writes the values as one JSON object.
+	 *
+	 * @param out
+	 * @throws IOException
+	 *             if out throws one
+	 */
+	public static void writeJson(Appendable out) throws IOException {
+		out.append('{');
+		boolean first = true;
+		for (Map.Entry<String, Long> e : getValues().entrySet()) {
+			if (!first)
+				out.append(',');
+			first = false;
+			out.append("\n  \"").append(e.getKey()).append("\": ").append(e.getValue().toString());
+		}
+		out.append("\n}\n");
+	}
+
+	/***
+	 * Registers the values at the platform MBean server, under
+	 * {@link #OBJECT_NAME}. Does nothing if they are registered already.
+	 */
+	public static void registerMBean() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			server.registerMBean(new Bean(), new ObjectName(OBJECT_NAME));
+		} catch (InstanceAlreadyExistsException e) {
+			// registered before
+		} catch (JMException e) {
+			throw new IllegalStateException("cannot register " + OBJECT_NAME, e);
+		}
+	}
+
+	private static class Bean implements MetricsMXBean {
+		@Override
+		public Map<String, Long> getValues() {
+			return Metrics.getValues();
+		}
+
+		@Override
+		public String getCsv() {
+			StringBuilder sb = new StringBuilder();
+			try {
+				writeCsv(sb);
+			} catch (IOException e) {
+				// a StringBuilder throws none
+				throw new AssertionError(e);
+			}
+			return sb.toString();
+		}
+
+		@Override
+		public String getJson() {
+			StringBuilder sb = new StringBuilder();
+			try {
+				writeJson(sb);
+			} catch (IOException e) {
+				// a StringBuilder throws none
+				throw new AssertionError(e);
+			}
+			return sb.toString();
+		}
+
+		@Override
+		public void reset() {
+			Metrics.reset();
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package edu.udo.cs.ls1.fltl.metrics;
+
+import java.util.Map;
+
+/***
+ * The JMX view of {@link Metrics}.
+ *
+ * @author Kai Sauerwald
+ *
+ */
+public interface MetricsMXBean {
+
+	/***
+	 *
+	 * @return all values, by name
+	 */
+	Map<String, Long> getValues();
+
+	/***
+	 *
+	 * @return the values as CSV
+	 */
+	String getCsv();
+
+	/***
+	 *
+	 * @return the values as JSON object
+	 */
+	String getJson();
+
+	/***
+	 * Sets all values to 0.
+	 */
+	void reset();
+}
@@ -1,70 +1,62 @@
 package edu.udo.cs.ls1.fltl.reg;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.io.PrintWriter;
-import java.lang.ProcessBuilder.Redirect;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.security.InvalidParameterException;
 import java.time.Duration;
-import java.time.Instant;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
-import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.SortedMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 import dk.brics.automaton.Automaton;
 import dk.brics.automaton.RegExp;
 import dk.brics.automaton.State;
-import dk.brics.automaton.Transition;
 import edu.udo.cs.ls1.fltl.Tuple;
+import edu.udo.cs.ls1.fltl.metrics.Metrics;
+import edu.udo.cs.ls1.fltl.metrics.Metrics.Timer;
 import edu.udo.cs.ls1.fltl.reg.bkw.BKW;
+import edu.udo.cs.ls1.fltl.reg.bkw.BatchBKW;
 
 /**
  * Hello world!
  *
  */
 public class Anzeige {
-	private static String s2i(Automaton aut, State s) {
-		return "q" + (s.compareTo(aut.getInitialState()) + aut.getNumberOfStates()) % (aut.getNumberOfStates() + 1);
-	}
-
-	private static String c2sym(char c, boolean isEnabled) {
-		if (c == '|')
-			return "+";
-		if (isEnabled) {
-			if (c >= 'a' && c <= 'z') {
-				return "a<SUB>" + (c - 'a' + 1) + "</SUB>";
-			} else if (c >= 'A' && c <= 'Z') {
-				return "b<SUB>" + (c - 'A' + 1) + "</SUB>";
-			} else if (c >= '0' && c <= '9') {
-				return "c<SUB>" + (c - '0' + 1) + "</SUB>";
-			}
-		}
-		return "" + c;
-	}
-
-	private static String s2t(Automaton aut, State s, boolean isEnabled) {
-		return s.getTransitions().stream()
-				.map(t -> s2i(aut, s) + " -> " + s2i(aut, t.getDest()) + " [ label = <" + c2sym(t.getMin(), isEnabled)
-						+ (t.getMin() != t.getMax() ? " - " + c2sym(t.getMax(), isEnabled) : "") + "> ];\n")
-				.reduce("", String::concat);
-	}
-
+	/***
+	 * @see GraphVizWriter#write(Automaton, String, boolean, java.io.Writer)
+	 */
 	public static String automataToGraphViz(Automaton aut, String caption, boolean isEnabled) {
-		String text = "digraph finite_state_machine { graph [label=<" + caption + ">];\n" + "	rankdir=LR;\n"
-				+ "	size=\"8,5\"\n" + "  node [shape = point ]; qi \n" + "node [shape = doublecircle]; "
-				+ aut.getAcceptStates().stream().map(s -> s2i(aut, s) + " ").reduce("", String::concat) + ";\n"
-				+ "	node [shape = circle];\n" + " qi -> " + s2i(aut, aut.getInitialState()) + ";\n"
-				+ aut.getStates().stream().map(s -> s2t(aut, s, isEnabled)).reduce("", String::concat) + "}";
-
-		return text;
+		StringWriter text = new StringWriter();
+		try {
+			GraphVizWriter.write(aut, caption, isEnabled, text);
+		} catch (IOException e) {
+			// a StringWriter throws none
+			throw new AssertionError(e);
+		}
+		return text.toString();
 	}
 
 	static class Stats {
@@ -73,13 +65,21 @@ public class Anzeige {
 		int transitions;
 	}
 
-	private static Automaton showMinA2REXP(String regexp, List<Fragment> fn, List<Stats> stats,
-			boolean charResetisEnabled) throws IOException, InterruptedException {
-		return showMinA2REXP(regexp, fn, stats, false, false, charResetisEnabled);
+	/***
+	 * Like {@link #showMinA2REXP(String, List, List, boolean, boolean, boolean, GraphVizRenderer)},
+	 * without replacing characters and without showing the automata.
+	 *
+	 * @param write
+	 *            if true, the .dot file is written to /tmp and rendered
+	 */
+	private static Automaton showMinA2REXP(String regexp, List<Fragment> fn, List<Stats> stats, boolean write,
+			GraphVizRenderer renderer) throws IOException, InterruptedException {
+		return showMinA2REXP(regexp, fn, stats, false, false, write, renderer);
 	}
 
 	private static Automaton showMinA2REXP(String regexp, List<Fragment> fn, List<Stats> stats,
-			boolean charResetisEnabled, boolean show, boolean write) throws IOException, InterruptedException {
+			boolean charResetisEnabled, boolean show, boolean write, GraphVizRenderer renderer)
+			throws IOException, InterruptedException {
 
 		RegExp rep = new RegExp(regexp);
 		Automaton aut1 = rep.toAutomaton(true);
@@ -95,40 +95,52 @@ public class Anzeige {
 			// File file = File.createTempFile("graph", ".dot");
 			File file = new File("/tmp/graph" + fn.size()
 					+ fn.stream().map(f -> " " + f.toString()).reduce("", String::concat).substring(1) + ".dot");
-			File filePDF = new File(file.getAbsolutePath() + ".pdf");
 			PrintWriter writer = new PrintWriter(file);
 
 			ArrayList<String> aList = new ArrayList<>(regexp.length());
 
 			for (int i = 0; i < regexp.toCharArray().length; i++) {
-				aList.add(c2sym(regexp.charAt(i), charResetisEnabled));
+				aList.add(GraphVizWriter.c2sym(regexp.charAt(i), charResetisEnabled));
 			}
 
-			writer.write(automataToGraphViz(aut1, "Graph zu " + aList.stream().reduce("", String::concat),
-					charResetisEnabled));
+			GraphVizWriter.write(aut1, "Graph zu " + aList.stream().reduce("", String::concat), charResetisEnabled,
+					writer);
 			writer.flush();
 			writer.close();
 
-			ProcessBuilder dot = new ProcessBuilder("/usr/bin/dot", "-Tpdf");
-			dot.redirectOutput(filePDF);
-			dot.redirectInput(Redirect.from(file));
-			Process pdot = dot.start();
-			pdot.waitFor();
-
-			if (show) {
-				ProcessBuilder evince = new ProcessBuilder("/usr/bin/evince", filePDF.getAbsolutePath());
-				evince.start();
-			}
+			if (show)
+				show(renderer, file);
+			else
+				renderer.render(file).whenComplete((pdf, e) -> {
+					if (e != null)
+						System.err.println("Kann " + file + " nicht rendern: " + e);
+				});
 		}
 
 		return aut1;
 	}
 
+	/***
+	 * Renders the file in the background and opens the result with evince.
+	 */
+	private static void show(GraphVizRenderer renderer, File file) throws InterruptedException {
+		renderer.render(file).whenComplete((pdf, e) -> {
+			try {
+				if (e != null)
+					throw e;
+				ProcessBuilder evince = new ProcessBuilder("/usr/bin/evince", pdf.getAbsolutePath());
+				evince.start();
+			} catch (Throwable t) {
+				System.err.println("Kann " + file + " nicht anzeigen: " + t);
+			}
+		});
+	}
+
 	enum Fragment {
 		SIGN, SIGN_STARF, SIGN_STARB, SIGN_PLUSF, SIGN_PLUSB, SIGN_Q
 	}
 
-	private static String createPattern(char[] signs, Fragment fragment) {
+	static String createPattern(char[] signs, Fragment fragment) {
 		ArrayList<Character> sig = new ArrayList<>(signs.length);
 		for (int i = 0; i < signs.length; i++) {
 			sig.add(signs[i]);
@@ -151,45 +163,47 @@ public class Anzeige {
 		return "";
 	}
 
-	public static void computeFourFragments() throws IOException, InterruptedException {
-		List<Stats> stats = new LinkedList<>();
+	/***
+	 * the characters of the fragments of computeFourFragments, by the number
+	 * of fragments and the position
+	 */
+	private static final String[][] FOUR_FRAGMENTS_ALPHABETS = { { "abcd", "abAB" },
+			{ "abcdefgh", "abcdABCD", "abefAB01" },
+			{ "abcdefghij", "abcdABCDEFGH", "abefABCD0123", "abghABEF01xy" } };
 
-		Fragment[] l1 = new Fragment[2];
-		Fragment[] l2 = new Fragment[3];
-		Fragment[] l3 = new Fragment[4];
-		for (Fragment f1 : Fragment.values()) {
-			l1[0] = f1;
-			l2[0] = f1;
-			l3[0] = f1;
-			for (Fragment f2 : Fragment.values()) {
-				l1[1] = f2;
-				l2[1] = f2;
-				l3[1] = f2;
-				String s11 = createPattern(new char[] { 'a', 'b', 'c', 'd' }, f1);
-				String s12 = createPattern(new char[] { 'a', 'b', 'A', 'B' }, f2);
-				showMinA2REXP(s11 + s12, Arrays.asList(l1), stats, true);
-				for (Fragment f3 : Fragment.values()) {
-					l2[2] = f3;
-					l3[2] = f3;
-					String s21 = createPattern(new char[] { 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h' }, f1);
-					String s22 = createPattern(new char[] { 'a', 'b', 'c', 'd', 'A', 'B', 'C', 'D' }, f2);
-					String s23 = createPattern(new char[] { 'a', 'b', 'e', 'f', 'A', 'B', '0', '1' }, f3);
-					showMinA2REXP(s21 + s22 + s23, Arrays.asList(l2), stats, true);
-					for (Fragment f4 : Fragment.values()) {
-						l3[3] = f4;
-						String s31 = createPattern(new char[] { 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j' }, f1);
-						String s32 = createPattern(
-								new char[] { 'a', 'b', 'c', 'd', 'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H' }, f2);
-						String s33 = createPattern(
-								new char[] { 'a', 'b', 'e', 'f', 'A', 'B', 'C', 'D', '0', '1', '2', '3' }, f3);
-						String s34 = createPattern(
-								new char[] { 'a', 'b', 'g', 'h', 'A', 'B', 'E', 'F', '0', '1', 'x', 'y' }, f4);
-						showMinA2REXP(s31 + s32 + s33 + s34, Arrays.asList(l3), stats, true);
-					}
-				}
-			}
+	/***
+	 * Computes the automata of 2 to 4 fragments over the alphabets of
+	 * {@link #FOUR_FRAGMENTS_ALPHABETS}. Only the 100 biggest automata are
+	 * shown, not the stats of all combinations. Unlike before, no
+	 * /tmp/graph*.dot file and PDF is written per combination; use
+	 * {@link #showMinA2REXP} for the graph of a single combination.
+	 */
+	public static void computeFourFragments() {
+		computeFragments(2, 4, (k, i) -> FOUR_FRAGMENTS_ALPHABETS[k - 2][i].toCharArray(), 100);
+	}
+
+	/***
+	 * Computes the automata of all combinations of fragments in parallel and
+	 * shows the biggest ones and the histograms of the fragments.
+	 *
+	 * @param minFragments
+	 * @param maxFragments
+	 * @param alphabets
+	 *            the characters of the fragments, see
+	 *            {@link FragmentExplorer#overlapping(int)}
+	 * @param topK
+	 *            the number of automata that are shown
+	 */
+	public static void computeFragments(int minFragments, int maxFragments, FragmentExplorer.Alphabets alphabets,
+			int topK) {
+		FragmentExplorer.Result result = new FragmentExplorer(ForkJoinPool.commonPool(), topK).explore(minFragments,
+				maxFragments, alphabets);
+		System.out.println(result.getCombinations() + " Kombinationen");
+		showStats(result.getTop());
+		for (Map.Entry<Fragment, SortedMap<Integer, Long>> e : result.getHistograms().entrySet()) {
+			System.out.println("Zustände mit " + e.getKey() + ":");
+			e.getValue().forEach((states, count) -> System.out.println("  " + states + ": " + count));
 		}
-		showStats(stats);
 	}
 
 	private static void showStats(List<Stats> stats) {
@@ -238,31 +252,32 @@ public class Anzeige {
 	private static void computeFragmentsRnd(int minFragments, int maxFragments, int minElements, int maxElements)
 			throws IOException, InterruptedException {
 		Random rnd = new Random();
+		try (GraphVizRenderer renderer = new GraphVizRenderer()) {
+			List<Stats> stats = new LinkedList<>();
 
-		List<Stats> stats = new LinkedList<>();
-
-		for (int i = minFragments; i <= maxFragments; i++) {
+			for (int i = minFragments; i <= maxFragments; i++) {
 
-			Fragment[] fgm = new Fragment[i];
-			for (int j = 0; j < fgm.length; j++) {
-				fgm[j] = Fragment.values()[rnd.nextInt(Fragment.values().length)];
-			}
+				Fragment[] fgm = new Fragment[i];
+				for (int j = 0; j < fgm.length; j++) {
+					fgm[j] = Fragment.values()[rnd.nextInt(Fragment.values().length)];
+				}
 
-			Supplier<char[]> mkchar = () -> {
-				char[] result = new char[minElements + rnd.nextInt(maxElements - minElements + 1)];
+				Supplier<char[]> mkchar = () -> {
+					char[] result = new char[minElements + rnd.nextInt(maxElements - minElements + 1)];
 
-				for (int j = 0; j < result.length; j++) {
-					result[j] = (char) ('a' + rnd.nextInt('z' - 'a' + 1));
-				}
+					for (int j = 0; j < result.length; j++) {
+						result[j] = (char) ('a' + rnd.nextInt('z' - 'a' + 1));
+					}
 
-				return result;
-			};
+					return result;
+				};
 
-			showMinA2REXP(Arrays.stream(fgm).map(f -> createPattern(mkchar.get(), f)).reduce("", String::concat),
-					Arrays.asList(fgm), stats, true);
+				showMinA2REXP(Arrays.stream(fgm).map(f -> createPattern(mkchar.get(), f)).reduce("", String::concat),
+						Arrays.asList(fgm), stats, true, renderer);
 
+			}
+			showStats(stats);
 		}
-		showStats(stats);
 	}
 
 	public static Fragment[] produce(int n, Fragment f) {
@@ -275,17 +290,30 @@ public class Anzeige {
 		return res;
 	}
 
-	private static Automaton doTheStuff(boolean showStats, boolean statsSort, boolean showAutomata, int notover,
-			String outputFile, String input, List<Stats> stats, int n, boolean charRepaceIsEnabled)
-			throws IOException, FileNotFoundException, InterruptedException {
-		String in = input.replace("^*", "*").replace("^{n^2}", "{" + n * n + "}").replace("^{2n}", "{" + 2 * n + "}").replace("^{n}", "{" + n + "}")
+	private static String instantiate(String input, int n) {
+		return input.replace("^*", "*").replace("^{n^2}", "{" + n * n + "}").replace("^{2n}", "{" + 2 * n + "}").replace("^{n}", "{" + n + "}")
 				.replace("^{1,n}", "{1," + n + "}").replace("^{0,n}", "{0," + n + "}").replace("^{1,2n}", "{1," + 2*n + "}").replace("^{0,2n}", "{0," +2* n + "}").replace("^n", "{" + n + "}").replace("n", "{" + n + "}").replace(" ", "");
+	}
+
+	/***
+	 * @return the instantiated input in the syntax of brics, where + is |
+	 *         and ^+ is +
+	 */
+	private static String toBricsSyntax(String in) {
+		return in.replace("^+", "ß").replace('+', '|').replace("ß", "+");
+	}
 
-		RegExp rep = new RegExp(in.replace("^+", "ß").replace('+', '|').replace("ß", "+"));
+	private static Automaton doTheStuff(boolean showStats, boolean statsSort, String input, List<Stats> stats, int n,
+			PrintStream out) {
+		String in = instantiate(input, n);
 
-		Instant time = Instant.now();
+		long start = Metrics.start();
+		RegExp rep = new RegExp(toBricsSyntax(in));
+		Metrics.stop(Timer.REGEX_PARSE, start);
+
+		start = Metrics.start();
 		Automaton aut1 = rep.toAutomaton(true);
-		Duration timediff = Duration.between(time, Instant.now());
+		Duration timediff = Duration.ofNanos(Metrics.stop(Timer.DFA_CONSTRUCTION, start));
 
 		if (showStats) {
 
@@ -296,38 +324,233 @@ public class Anzeige {
 				stat.transitions = aut1.getNumberOfTransitions();
 				stats.add(stat);
 			} else {
-				System.out.println("\n--------- n=" +n +" ---------------");
-				System.out.println("Regex: " + in + " (Zeit: " + timediff.toString() + ")\nStates: " + aut1.getNumberOfStates()
+				out.println("\n--------- n=" +n +" ---------------");
+				out.println("Regex: " + in + " (Zeit: " + timediff.toString() + ")\nStates: " + aut1.getNumberOfStates()
 						+ ", Trans.: " + aut1.getNumberOfTransitions());
 			}
 		}
 
+		return aut1;
+	}
+
+	/***
+	 * Writes the .dot file for n. If the automata is shown, it is rendered in
+	 * the background, so the next n can be computed meanwhile.
+	 */
+	private static void writeAutomata(boolean showAutomata, int notover, String outputFile, String input, Automaton aut1,
+			int n, boolean charRepaceIsEnabled, GraphVizRenderer renderer)
+			throws IOException, FileNotFoundException, InterruptedException {
 		if ((showAutomata && (notover == -1 || notover >= aut1.getNumberOfStates())) || outputFile != null) {
 			File file;
 			if (outputFile != null)
 				file = new File(outputFile.replace("{n}", "" + n));
 			else
 				file = File.createTempFile("dfa", ".dot");
-			File filePDF = new File(file.getAbsolutePath() + ".pdf");
 			PrintWriter writer = new PrintWriter(file);
 
-			writer.write(automataToGraphViz(aut1, "Graph zu " + in, charRepaceIsEnabled));
+			GraphVizWriter.write(aut1, "Graph zu " + instantiate(input, n), charRepaceIsEnabled, writer);
 			writer.flush();
 			writer.close();
 
-			if (showAutomata && (notover == -1 || notover >= aut1.getNumberOfStates())) {
-				ProcessBuilder dot = new ProcessBuilder("/usr/bin/dot", "-Tpdf");
-				dot.redirectOutput(filePDF);
-				dot.redirectInput(Redirect.from(file));
-				Process pdot = dot.start();
-				pdot.waitFor();
+			if (showAutomata && (notover == -1 || notover >= aut1.getNumberOfStates()))
+				show(renderer, file);
+		}
+	}
 
-				ProcessBuilder evince = new ProcessBuilder("/usr/bin/evince", filePDF.getAbsolutePath());
-				evince.start();
+	/***
+	 * The number of deterministic states that the matcher of --accepts keeps.
+	 */
+	private static final int LAZY_DFA_CAPACITY = 4096;
+
+	/***
+	 * Tests the words against the input for n, without the deterministic
+	 * automata. The states of the deterministic automata are built on the fly
+	 * by a {@link LazyDfaMatcher}, so (a+b)^*a(a+b)^{n} stays feasible for
+	 * large n.
+	 */
+	private static void testWords(List<String> words, String input, int n, PrintStream out) {
+		String regexp = toBricsSyntax(instantiate(input, n));
+		Predicate<String> accepts;
+		try {
+			LazyDfaMatcher<Integer, Character> matcher = new LazyDfaMatcher<>(
+					NondeterministicFiniteStateAutomata.fromRegExp(regexp), LAZY_DFA_CAPACITY);
+			accepts = matcher::accepts;
+		} catch (IllegalArgumentException e) {
+			// an operator that only brics knows, like . or [^x]. Its automata
+			// is labeled with character ranges, so the characters of a word
+			// are mapped to them
+			Automaton aut = new RegExp(regexp).toAutomaton(false);
+			List<CharRange> ranges = CharRange.partition(aut);
+			LazyDfaMatcher<State, CharRange> matcher = new LazyDfaMatcher<>(
+					NondeterministicFiniteStateAutomata.fromAutomaton(aut), LAZY_DFA_CAPACITY);
+			accepts = w -> {
+				List<CharRange> symbols = new ArrayList<>(w.length());
+				for (int i = 0; i < w.length(); i++)
+					symbols.add(CharRange.of(ranges, w.charAt(i)));
+				return matcher.accepts(symbols);
+			};
+		}
+		for (String w : words)
+			out.println("n=" + n + ", Wort " + w + ": " + (accepts.test(w) ? "akzeptiert" : "nicht akzeptiert"));
+	}
+
+	/***
+	 * Computes the automata for n and everything that is printed about it,
+	 * except for the files.
+	 *
+	 * @param words
+	 *            the words of --accepts
+	 * @param buildDfa
+	 *            if false, only the words are tested
+	 * @param out
+	 *            where the results are printed
+	 * @return the automata, or null if it is not built
+	 */
+	private static Automaton computeStep(boolean showStats, boolean statsSort, int getStatesOfDeepN, boolean computeDRE,
+			boolean minimizeSub, List<String> words, boolean buildDfa, String input, List<Stats> stats, int n,
+			PrintStream out) {
+		Automaton aut = computeAutomata(showStats, statsSort, words, buildDfa, input, stats, n, out);
+		if (aut == null)
+			return null;
+		// BKW changes its automata, but the file is written afterwards
+		computeDetails(getStatesOfDeepN, computeDRE, minimizeSub, input, computeDRE ? aut.clone() : aut, n, out);
+		return aut;
+	}
+
+	/***
+	 * Tests the words and computes the automata for n.
+	 *
+	 * @return the automata, or null if it is not built
+	 */
+	private static Automaton computeAutomata(boolean showStats, boolean statsSort, List<String> words,
+			boolean buildDfa, String input, List<Stats> stats, int n, PrintStream out) {
+		if (!words.isEmpty())
+			testWords(words, input, n, out);
+		if (!buildDfa)
+			return null;
+		return doTheStuff(showStats, statsSort, input, stats, n, out);
+	}
+
+	/***
+	 * Prints the states of a depth and the DRE of the automata for n. The
+	 * automata is changed by BKW.
+	 */
+	private static void computeDetails(int getStatesOfDeepN, boolean computeDRE, boolean minimizeSub, String input,
+			Automaton aut, int n, PrintStream out) {
+		if (getStatesOfDeepN > -1) {
+			int[] profile = DepthProfile.compute(aut, getStatesOfDeepN);
+			out.println("Zustände der Tiefe " + getStatesOfDeepN + ": " + profile[getStatesOfDeepN]);
+		}
+		if (getStatesOfDeepN == -2) {
+			int[] profile = DepthProfile.compute(aut, 2 * n);
+			out.println("Zustände der Tiefe " + 2 * n + ": " + profile[2 * n]);
+		}
+		if (getStatesOfDeepN == -3) {
+			int[] profile = DepthProfile.compute(aut, input.indexOf("^{n^2}") != -1 ? n * n : 2 * n);
+			for (int d = 0; d < profile.length; d++)
+				out.println("Zustände der Tiefe " + d + ": " + profile[d]);
+		}
+
+		if (computeDRE) {
+			out.print("DRE: ");
+			try {
+				BKW.computeDre(aut, minimizeSub).writeTo(out);
+			} catch (IOException e) {
+				// a PrintStream throws none
 			}
+			out.println();
 		}
+	}
 
-		return aut1;
+	/***
+	 * Writes the metrics of the run, as JSON if the name ends with .json and
+	 * as CSV otherwise.
+	 *
+	 * @param metricsFile
+	 *            the file, or null
+	 */
+	private static void writeMetrics(String metricsFile) throws IOException {
+		if (metricsFile == null)
+			return;
+		try (Writer out = new BufferedWriter(new FileWriter(metricsFile))) {
+			if (metricsFile.endsWith(".json"))
+				Metrics.writeJson(out);
+			else
+				Metrics.writeCsv(out);
+		}
+	}
+
+	/***
+	 * The result of {@link #computeStep} for one n, with the buffered output.
+	 */
+	private static class Step {
+		final int n;
+		final List<Stats> stats = new LinkedList<>();
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		Automaton aut;
+		/***
+		 * thrown by the step, after its output is printed
+		 */
+		RuntimeException failure;
+
+		Step(int n) {
+			this.n = n;
+		}
+	}
+
+	/***
+	 * Computes the steps for nmin to nmax with the given number of threads.
+	 * The results are printed and the files written in the order of n, as soon
+	 * as the steps for all smaller n are done. At most twice as many steps as
+	 * there are threads are computed ahead, so only their results are held.
+	 */
+	private static void computeStepsParallel(int threads, int nmin, int nmax, boolean showStats, boolean statsSort,
+			int getStatesOfDeepN, boolean computeDRE, boolean minimizeSub, List<String> words, boolean buildDfa,
+			boolean showAutomata, int notover,
+			String outputFile, String input, List<Stats> stats, boolean charRepaceIsEnabled, GraphVizRenderer renderer)
+			throws IOException, InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			// the reorder buffer: the submitted steps, in the order of n
+			ArrayDeque<Future<Step>> pending = new ArrayDeque<>();
+			int next = nmin;
+			while (next <= nmax || !pending.isEmpty()) {
+				while (next <= nmax && pending.size() < 2 * threads) {
+					Step step = new Step(next++);
+					pending.add(executor.submit(() -> {
+						PrintStream out = new PrintStream(step.output);
+						try {
+							step.aut = computeStep(showStats, statsSort, getStatesOfDeepN, computeDRE, minimizeSub,
+									words, buildDfa, input, step.stats, step.n, out);
+						} catch (RuntimeException e) {
+							step.failure = e;
+						}
+						out.flush();
+						return step;
+					}));
+				}
+
+				Step step;
+				try {
+					step = pending.remove().get();
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof RuntimeException)
+						throw (RuntimeException) cause;
+					if (cause instanceof Error)
+						throw (Error) cause;
+					throw new IllegalStateException(cause);
+				}
+				step.output.writeTo(System.out);
+				if (step.failure != null)
+					throw step.failure;
+				stats.addAll(step.stats);
+				writeAutomata(showAutomata, notover, outputFile, input, step.aut, step.n, charRepaceIsEnabled,
+						renderer);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
 	}
 
 	public static void main(String[] args) throws IOException, InterruptedException {
@@ -338,6 +561,7 @@ public class Anzeige {
 		boolean statsSort = false;
 		boolean showAutomata = false;
 		boolean computeDRE = false;
+		boolean minimizeSub = false;
 		boolean showHelp = false;
 		boolean charRepaceIsEnabled = false;
 		int nmin = -1;
@@ -345,10 +569,15 @@ public class Anzeige {
 		int notover = -1;
 		String outputFile = null;
 		String input = null;
+		String batchFile = null;
+		int parallel = 1;
+		List<String> words = new ArrayList<>();
+		List<String> rendererCommand = GraphVizRenderer.DEFAULT_COMMAND;
+		String metricsFile = null;
 
 		for (int i = 0; i < args.length; i++) {
 			String arg = args[i];
-			System.out.print(arg);
+			System.err.print(arg);
 			if (arg.startsWith("--")) {
 				switch (arg) {
 				case "--help":
@@ -366,25 +595,28 @@ public class Anzeige {
 				case "--dre":
 					computeDRE = true;
 					break;
+				case "--minimize-sub":
+					minimizeSub = true;
+					break;
 				case "--notover":
 					if (i == args.length - 1)
 						throw new InvalidParameterException("Fehlendes Argument für Parameter: " + arg);
 					notover = Integer.parseInt(args[i + 1]);
-					System.out.print(" " + args[i + 1]);
+					System.err.print(" " + args[i + 1]);
 					++i;
 					break;
 				case "--min":
 					if (i == args.length - 1)
 						throw new InvalidParameterException("Fehlendes Argument für Parameter: " + arg);
 					nmin = Integer.parseInt(args[i + 1]);
-					System.out.print(" " + args[i + 1]);
+					System.err.print(" " + args[i + 1]);
 					++i;
 					break;
 				case "--max":
 					if (i == args.length - 1)
 						throw new InvalidParameterException("Fehlendes Argument für Parameter: " + arg);
 					nmax = Integer.parseInt(args[i + 1]);
-					System.out.print(" " + args[i + 1]);
+					System.err.print(" " + args[i + 1]);
 					++i;
 					break;
 				case "--states-of-deep":
@@ -396,14 +628,49 @@ public class Anzeige {
 						getStatesOfDeepN = -3;
 					else
 						getStatesOfDeepN = Integer.parseInt(args[i + 1]);
-					System.out.print(" " + args[i + 1]);
+					System.err.print(" " + args[i + 1]);
 					++i;
 					break;
 				case "--output":
 					if (i == args.length - 1)
 						throw new InvalidParameterException("Fehlendes Argument für Parameter: " + arg);
 					outputFile = args[i + 1];
-					System.out.print(" " + args[i + 1]);
+					System.err.print(" " + args[i + 1]);
+					++i;
+					break;
+				case "--parallel":
+					if (i == args.length - 1)
+						throw new InvalidParameterException("Fehlendes Argument für Parameter: " + arg);
+					parallel = Integer.parseInt(args[i + 1]);
+					System.err.print(" " + args[i + 1]);
+					++i;
+					break;
+				case "--renderer":
+					if (i == args.length - 1)
+						throw new InvalidParameterException("Fehlendes Argument für Parameter: " + arg);
+					rendererCommand = Arrays.asList(args[i + 1].trim().split("\\s+"));
+					System.err.print(" " + args[i + 1]);
+					++i;
+					break;
+				case "--metrics":
+					if (i == args.length - 1)
+						throw new InvalidParameterException("Fehlendes Argument für Parameter: " + arg);
+					metricsFile = args[i + 1];
+					System.err.print(" " + args[i + 1]);
+					++i;
+					break;
+				case "--accepts":
+					if (i == args.length - 1)
+						throw new InvalidParameterException("Fehlendes Argument für Parameter: " + arg);
+					words.add(args[i + 1]);
+					System.err.print(" " + args[i + 1]);
+					++i;
+					break;
+				case "--batch":
+					if (i == args.length - 1)
+						throw new InvalidParameterException("Fehlendes Argument für Parameter: " + arg);
+					batchFile = args[i + 1];
+					System.err.print(" " + args[i + 1]);
 					++i;
 					break;
 
@@ -414,7 +681,7 @@ public class Anzeige {
 				input = arg;
 			} else
 				throw new InvalidParameterException("Kann Paramter " + arg + " nicht interpretieren");
-			System.out.println();
+			System.err.println();
 		}
 
 		if (showHelp) {
@@ -431,11 +698,35 @@ public class Anzeige {
 			System.out.println("--notover o\tZeit Automaten mit mehr als o Zuständen nicht an");
 			System.out.println(
 					"--dre\t\tWenn gesetzt wird auch ein deterministischer Regulärer Ausdruck für den Automaten berechnet (sofern einer existiert)");
+			System.out.println(
+					"--minimize-sub\tMinimiert bei --dre jeden Teilautomaten der Rekursion von BKW (kleinerer Rekursionsbaum)");
 			System.out.println("--min nmin\tMinimalzahl für n");
 			System.out.println("--max nmax\tMaximalzahl für n");
 			System.out.println("--states-of-deep n \tGibt die Anzahl an Zuständen der Tiefe n an");
 			System.out.println(
 					"--output\tDatei in die das Aussgabe geschrieben werden soll. Der Teilstring {n}  wird im Zweifel durch die durchlaufnummer ersetzt.");
+			System.out.println(
+					"--parallel k\tBerechnet bis zu k Laufnummern gleichzeitig, die Ausgabe bleibt nach n sortiert");
+			System.out.println(
+					"--renderer befehl\tProgramm, das die .dot Dateien (als letzte Argumente) in PDFs umwandelt (Standard: /usr/bin/dot -Tpdf -O)");
+			System.out.println(
+					"--metrics datei\tSchreibt Zeiten und Zähler der Phasen als CSV (oder JSON, wenn die Datei auf .json endet) und stellt sie per JMX bereit");
+			System.out.println(
+					"--accepts wort\tTestet, ob der Ausdruck das Wort enthält, ohne den deterministischen Automaten vollständig zu bauen (mehrfach möglich)");
+			System.out.println(
+					"--batch datei\tBerechnet deterministische Reguläre Ausdrücke für alle Ausdrücke der Datei (einer pro Zeile, - für die Standardeingabe) parallel, siehe BatchBKW");
+			return;
+		}
+
+		if (metricsFile != null)
+			Metrics.registerMBean();
+
+		if (batchFile != null) {
+			if (outputFile != null)
+				BatchBKW.main(new String[] { "--output", outputFile, batchFile });
+			else
+				BatchBKW.main(new String[] { batchFile });
+			writeMetrics(metricsFile);
 			return;
 		}
 
@@ -449,64 +740,37 @@ public class Anzeige {
 		if (nmax < 0)
 			nmax = nmin;
 
-		List<Stats> stats = new LinkedList<>();
-		for (int n = nmin; n < nmax + 1; n++) {
-			Automaton aut = doTheStuff(showStats, statsSort, showAutomata, notover, outputFile, input, stats, n,
-					charRepaceIsEnabled);
-
-			if (getStatesOfDeepN > -1) {
-				HashSet<State> hs = new HashSet<>();
-				hs.add(aut.getInitialState());
-				hs = computeDeepN(aut, hs, 0, getStatesOfDeepN);
-				System.out.println("Zustände der Tiefe " + getStatesOfDeepN + ": " + hs.size());
-			}
-			if (getStatesOfDeepN == -2) {
-				HashSet<State> hs = new HashSet<>();
-				hs.add(aut.getInitialState());
-				hs = computeDeepN(aut, hs, 0, 2 * n);
-				System.out.println("Zustände der Tiefe " + 2 * n + ": " + hs.size());
-			}
-			if (getStatesOfDeepN == -3) {
-				HashSet<State> hs = new HashSet<>();
-				hs.add(aut.getInitialState());
-				if (input.indexOf("^{n^2}") != -1)
-					hs = computeDeepN(aut, hs, 0, n * n, true);
-				else
-					hs = computeDeepN(aut, hs, 0, 2 * n, true);
-			}
+		if (!input.contains("n"))
+			nmax = nmin;
 
-			if (computeDRE) {
-				System.out.println("DRE: " + BKW.computeBKW(aut));
+		// with only --accepts the deterministic automata is not needed
+		boolean buildDfa = words.isEmpty() || showStats || getStatesOfDeepN != -1 || computeDRE || showAutomata
+				|| outputFile != null;
+
+		List<Stats> stats = new LinkedList<>();
+		try (GraphVizRenderer renderer = new GraphVizRenderer(rendererCommand, ".pdf", 2, 16, 8)) {
+			if (parallel > 1) {
+				computeStepsParallel(parallel, nmin, nmax, showStats, statsSort, getStatesOfDeepN, computeDRE,
+						minimizeSub, words, buildDfa, showAutomata, notover, outputFile, input, stats, charRepaceIsEnabled, renderer);
+			} else {
+				for (int n = nmin; n < nmax + 1; n++) {
+					// as before --parallel, the file is written before the states of a
+					// depth and the DRE are computed
+					Automaton aut = computeAutomata(showStats, statsSort, words, buildDfa, input, stats, n,
+							System.out);
+					if (aut == null)
+						continue;
+					writeAutomata(showAutomata, notover, outputFile, input, aut, n, charRepaceIsEnabled, renderer);
+					computeDetails(getStatesOfDeepN, computeDRE, minimizeSub, input, aut, n, System.out);
+				}
 			}
-			
-			if(!input.contains("n"))
-				break;
 		}
 
 		if (showStats && statsSort)
 			showStats(stats);
 
-	}
-
-	private static HashSet<State> computeDeepN(Automaton aut, HashSet<State> hs, int deep, int n) {
-
-		return computeDeepN(aut, hs, deep, n, false);
-	}
-
-	private static HashSet<State> computeDeepN(Automaton aut, HashSet<State> hs, int deep, int n, boolean show) {
-		if (show) {
-			System.out.println("Zustände der Tiefe " + deep + ": " + hs.size());
-		}
-		if (deep == n)
-			return hs;
-		HashSet<State> nextlevel = new HashSet<>();
-		for (State state : hs) {
-			for (Transition t : state.getTransitions()) {
-				nextlevel.add(t.getDest());
-			}
-		}
+		writeMetrics(metricsFile);
 
-		return computeDeepN(aut, nextlevel, deep + 1, n, show);
 	}
 
 }
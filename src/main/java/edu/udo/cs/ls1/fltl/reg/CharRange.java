@@ -0,0 +1,201 @@
+package edu.udo.cs.ls1.fltl.reg;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.State;
+import dk.brics.automaton.Transition;
+
+/***
+ * An immutable interval of characters, used as the symbol of a transition. A
+ * single transition with a range label stands for one transition per
+ * character of the range.
+ *
+ * @author Kai Sauerwald
+ *
+ */
+public final class CharRange implements Comparable<CharRange> {
+	private final char min;
+	private final char max;
+
+	/***
+	 *
+	 * @param min
+	 *            the first character of the range
+	 * @param max
+	 *            the last character of the range, at least min
+	 */
+	public CharRange(char min, char max) {
+		if (max < min)
+			throw new IllegalArgumentException("empty range " + (int) min + ".." + (int) max);
+		this.min = min;
+		this.max = max;
+	}
+
+	public char getMin() {
+		return min;
+	}
+
+	public char getMax() {
+		return max;
+	}
+
+	public boolean contains(char c) {
+		return min <= c && c <= max;
+	}
+
+	/***
+	 *
+	 * @return the number of characters of the range
+	 */
+	public int size() {
+		return max - min + 1;
+	}
+
+	/***
+	 * Translates a deterministic brics automata into an automata with range
+	 * labels. The ranges are the intervals between the points where a
+	 * transition range of aut begins or ends, like the start points of brics.
+	 * So they are disjoint, every transition range is a union of them, and
+	 * their number depends on the number of transition ranges, not on how
+	 * many characters they span. They are not necessarily the fewest ranges
+	 * that the automata distinguishes.
+	 *
+	 * @param aut
+	 *            a deterministic automata
+	 * @return the automata
+	 */
+	public static FiniteStateAutomata<State, CharRange> fromAutomaton(Automaton aut) {
+		List<CharRange> classes = partition(aut);
+		FiniteStateAutomata<State, CharRange> result = new FiniteStateAutomata<>(aut.getInitialState());
+		for (State s : aut.getStates()) {
+			result.addState(s);
+			if (s.isAccept())
+				result.setAccepting(s, true);
+			for (Transition t : s.getTransitions())
+				for (CharRange r : covering(classes, t.getMin(), t.getMax()))
+					result.addTransition(s, r, t.getDest());
+		}
+		return result;
+	}
+
+	/***
+	 * Splits the characters at the points where a transition range of aut
+	 * begins or ends, see {@link #fromAutomaton(Automaton)}.
+	 *
+	 * @param aut
+	 *            an automata, it may be nondeterministic
+	 * @return the ranges, sorted and disjoint. Every character is in one of
+	 *         them, and every transition range of aut is a union of them.
+	 */
+	public static List<CharRange> partition(Automaton aut) {
+		// the classes start at the start points and end before the next one
+		char[] points = startPoints(aut);
+		List<CharRange> classes = new ArrayList<>(points.length);
+		for (int i = 0; i < points.length; i++) {
+			char max = i + 1 < points.length ? (char) (points[i + 1] - 1) : Character.MAX_VALUE;
+			classes.add(new CharRange(points[i], max));
+		}
+		return classes;
+	}
+
+	/***
+	 *
+	 * @param partition
+	 *            a result of {@link #partition(Automaton)}
+	 * @param c
+	 * @return the range of the partition that contains c
+	 */
+	public static CharRange of(List<CharRange> partition, char c) {
+		return partition.get(indexOf(partition, c));
+	}
+
+	/***
+	 * @return the sorted characters where a transition range of aut begins or
+	 *         ends, and 0
+	 */
+	private static char[] startPoints(Automaton aut) {
+		BitSet points = new BitSet(Character.MAX_VALUE + 1);
+		points.set(0);
+		for (State s : aut.getStates()) {
+			for (Transition t : s.getTransitions()) {
+				points.set(t.getMin());
+				if (t.getMax() < Character.MAX_VALUE)
+					points.set(t.getMax() + 1);
+			}
+		}
+		char[] result = new char[points.cardinality()];
+		int i = 0;
+		for (int c = points.nextSetBit(0); c >= 0; c = points.nextSetBit(c + 1))
+			result[i++] = (char) c;
+		return result;
+	}
+
+	/***
+	 *
+	 * @param partition
+	 *            a result of {@link #partition(Automaton)}
+	 * @param min
+	 * @param max
+	 *            the range min..max of a transition of the automata of the
+	 *            partition
+	 * @return the ranges of the partition whose union is min..max
+	 */
+	public static List<CharRange> covering(List<CharRange> partition, char min, char max) {
+		int from = indexOf(partition, min);
+		int to = indexOf(partition, max);
+		return partition.subList(from, to + 1);
+	}
+
+	/***
+	 * @return the index of the range of the partition that contains c
+	 */
+	private static int indexOf(List<CharRange> partition, char c) {
+		int lo = 0, hi = partition.size() - 1;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (partition.get(mid).min <= c)
+				lo = mid;
+			else
+				hi = mid - 1;
+		}
+		return lo;
+	}
+
+	@Override
+	public int compareTo(CharRange o) {
+		return min != o.min ? Character.compare(min, o.min) : Character.compare(max, o.max);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * min + max;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof CharRange))
+			return false;
+		CharRange r = (CharRange) obj;
+		return min == r.min && max == r.max;
+	}
+
+	/***
+	 * @return the character, if the range has only one. Otherwise the range
+	 *         in the syntax of character classes, like [a-z].
+	 */
+	@Override
+	public String toString() {
+		if (min == max)
+			return String.valueOf(min);
+		return "[" + escape(min) + "-" + escape(max) + "]";
+	}
+
+	private static String escape(char c) {
+		if (c == ']' || c == '[' || c == '\\' || c == '-' || c == '^')
+			return "\\" + c;
+		return String.valueOf(c);
+	}
+}
@@ -0,0 +1,143 @@
+package edu.udo.cs.ls1.fltl.reg;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.State;
+import dk.brics.automaton.Transition;
+import edu.udo.cs.ls1.fltl.Tuple;
+
+/***
+ * Counts the states of every depth of an automata. The states of depth d are
+ * the states that are reached from the initial state by a word of length d,
+ * so the depth d+1 are the targets of the transitions of depth d.
+ *
+ * The states are numbered once, and the layers are computed with two bit sets
+ * over the arrays of the transitions, so a layer takes O(|δ|). As the next
+ * layer only depends on the current one, the layers become periodic at some
+ * depth. This is detected with the algorithm of Brent, and the remaining
+ * counts are then copied from the period.
+ *
+ * @author Kai Sauerwald
+ *
+ */
+public class DepthProfile {
+
+	private DepthProfile() {
+	}
+
+	/***
+	 *
+	 * @param aut
+	 * @param maxDepth
+	 *            the largest depth that is counted
+	 * @return the number of states of the depths 0 to maxDepth
+	 */
+	public static int[] compute(Automaton aut, int maxDepth) {
+		Set<State> states = aut.getStates();
+		Map<State, Integer> ids = new HashMap<>(states.size() * 2);
+		for (State s : states)
+			ids.put(s, ids.size());
+
+		int[] offsets = new int[ids.size() + 1];
+		for (State s : states)
+			offsets[ids.get(s) + 1] = s.getTransitions().size();
+		for (int i = 0; i < ids.size(); i++)
+			offsets[i + 1] += offsets[i];
+		int[] targets = new int[offsets[ids.size()]];
+		for (State s : states) {
+			int k = offsets[ids.get(s)];
+			for (Transition t : s.getTransitions())
+				targets[k++] = ids.get(t.getDest());
+		}
+
+		return compute(offsets, targets, ids.get(aut.getInitialState()), maxDepth);
+	}
+
+	/***
+	 *
+	 * @param fsa
+	 * @param maxDepth
+	 *            the largest depth that is counted
+	 * @return the number of states of the depths 0 to maxDepth
+	 */
+	public static <S, A> int[] compute(ReadOnlyFiniteStateAutomata<S, A> fsa, int maxDepth) {
+		Set<S> states = fsa.getStates();
+		Map<S, Integer> ids = new HashMap<>(states.size() * 2);
+		for (S s : states)
+			ids.put(s, ids.size());
+
+		int[] offsets = new int[ids.size() + 1];
+		for (S s : states)
+			offsets[ids.get(s) + 1] = fsa.getTransitions(s).size();
+		for (int i = 0; i < ids.size(); i++)
+			offsets[i + 1] += offsets[i];
+		int[] targets = new int[offsets[ids.size()]];
+		for (S s : states) {
+			int k = offsets[ids.get(s)];
+			for (Tuple<A, S> t : fsa.getTransitions(s))
+				targets[k++] = ids.get(t.second());
+		}
+
+		return compute(offsets, targets, ids.get(fsa.getInitialState()), maxDepth);
+	}
+
+	/***
+	 *
+	 * @param offsets
+	 *            the transitions of state i are targets[offsets[i]] to
+	 *            targets[offsets[i+1]-1]
+	 * @param targets
+	 * @param initial
+	 * @param maxDepth
+	 * @return the number of states of the depths 0 to maxDepth
+	 */
+	static int[] compute(int[] offsets, int[] targets, int initial, int maxDepth) {
+		if (maxDepth < 0)
+			throw new IllegalArgumentException("maxDepth is negative: " + maxDepth);
+		int[] counts = new int[maxDepth + 1];
+		int n = offsets.length - 1;
+
+		BitSet layer = new BitSet(n);
+		BitSet next = new BitSet(n);
+		layer.set(initial);
+
+		// Brent: the layer of depth savedDepth is compared with the
+		// following layers, until the next power of two
+		BitSet saved = new BitSet(n);
+		saved.or(layer);
+		int savedDepth = 0;
+		int power = 1;
+
+		for (int d = 0;; d++) {
+			counts[d] = layer.cardinality();
+			if (d == maxDepth)
+				return counts;
+
+			next.clear();
+			for (int q = layer.nextSetBit(0); q >= 0; q = layer.nextSetBit(q + 1))
+				for (int k = offsets[q]; k < offsets[q + 1]; k++)
+					next.set(targets[k]);
+			BitSet swap = layer;
+			layer = next;
+			next = swap;
+
+			if (layer.equals(saved)) {
+				// layer(d+1+i) = layer(savedDepth+i) for all i
+				int period = d + 1 - savedDepth;
+				for (int e = d + 1; e <= maxDepth; e++)
+					counts[e] = counts[savedDepth + (e - savedDepth) % period];
+				return counts;
+			}
+			if (d + 1 - savedDepth == power) {
+				saved.clear();
+				saved.or(layer);
+				savedDepth = d + 1;
+				power *= 2;
+			}
+		}
+	}
+}
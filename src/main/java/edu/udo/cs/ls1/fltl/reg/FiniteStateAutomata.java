@@ -1,12 +1,17 @@
 package edu.udo.cs.ls1.fltl.reg;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import edu.udo.cs.ls1.fltl.Tuple;
 
@@ -19,21 +24,162 @@ import edu.udo.cs.ls1.fltl.Tuple;
  *            The
  * @param <A>
  */
-public class FiniteStateAutomata<S, A> {
+public class FiniteStateAutomata<S, A> implements ReadOnlyFiniteStateAutomata<S, A> {
 	private Set<S> states = new HashSet<>(3);
 	private Set<S> accepting = new HashSet<>(3);
-	private Map<Tuple<S, A>, S> transitions = new HashMap<>(0);
 	private S initial = null;
 
 	/***
-	 * Performce one step of the Automata
+	 * The transition function. A transition (p,a,q) is stored with the key
+	 * (id(p), key(a)) and the value id(q), see {@link #stateId(Object)} and
+	 * {@link #symbolKey(Object)}.
+	 */
+	private TransitionTable transitions = new TransitionTable();
+
+	/***
+	 * The ids of the states. Every state that was ever part of the automata
+	 * keeps its id.
+	 */
+	private Map<S, Integer> stateIds = new HashMap<>(3);
+	private ArrayList<S> stateList = new ArrayList<>(3);
+
+	/***
+	 * The keys of the symbols that are not characters. A character is keyed
+	 * by its char value, all other symbols get keys from 0x10000 on.
+	 */
+	private Map<A, Integer> symbolIds = new HashMap<>(0);
+	private ArrayList<A> symbolList = new ArrayList<>(0);
+
+	private static final int SYMBOL_OFFSET = 0x10000;
+
+	/***
+	 * Index of the outgoing transitions, by state id. outgoing[p] holds the
+	 * symbol keys of the transitions of p in its first outDegree[p] entries,
+	 * the targets are in {@link #transitions}. Kept in sync with
+	 * {@link #transitions}.
+	 */
+	private int[][] outgoing = new int[3][];
+	private int[] outDegree = new int[3];
+
+	/***
+	 * Index of the incoming transitions, by state id. incoming[q] holds the
+	 * keys (id(p), key(a)) of the transitions (p,a,q) in its first
+	 * inDegree[q] entries. Kept in sync with {@link #transitions}.
+	 */
+	private long[][] incoming = new long[3][];
+	private int[] inDegree = new int[3];
+
+	/***
+	 * Performce one step of the Automata. For characters this does not
+	 * allocate anything.
 	 * 
 	 * @param q
 	 * @param symbol
-	 * @return
+	 * @return the next state, or null if there is no transition
 	 */
 	public S step(S q, A symbol) {
-		return transitions.get(new Tuple<S, A>(q, symbol));
+		Integer id = stateIds.get(q);
+		if (id == null)
+			return null;
+		int key = symbolKey(symbol);
+		if (key < 0)
+			return null;
+		int tgt = transitions.get(TransitionTable.pack(id, key));
+		return tgt == TransitionTable.NONE ? null : stateList.get(tgt);
+	}
+
+	/***
+	 * 
+	 * @param state
+	 * @return the id of state, a new one if it has none
+	 */
+	private int stateId(S state) {
+		Integer id = stateIds.get(state);
+		if (id == null) {
+			id = stateList.size();
+			stateIds.put(state, id);
+			stateList.add(state);
+			if (id == outDegree.length) {
+				int capacity = id * 2;
+				outgoing = Arrays.copyOf(outgoing, capacity);
+				outDegree = Arrays.copyOf(outDegree, capacity);
+				incoming = Arrays.copyOf(incoming, capacity);
+				inDegree = Arrays.copyOf(inDegree, capacity);
+			}
+		}
+		return id;
+	}
+
+	private void addOutgoing(int p, int symbol) {
+		int[] list = outgoing[p];
+		if (list == null)
+			list = outgoing[p] = new int[2];
+		else if (outDegree[p] == list.length)
+			list = outgoing[p] = Arrays.copyOf(list, list.length * 2);
+		list[outDegree[p]++] = symbol;
+	}
+
+	private void removeOutgoing(int p, int symbol) {
+		int[] list = outgoing[p];
+		for (int i = 0; i < outDegree[p]; i++) {
+			if (list[i] == symbol) {
+				list[i] = list[--outDegree[p]];
+				return;
+			}
+		}
+	}
+
+	private void addIncoming(int q, long key) {
+		long[] list = incoming[q];
+		if (list == null)
+			list = incoming[q] = new long[2];
+		else if (inDegree[q] == list.length)
+			list = incoming[q] = Arrays.copyOf(list, list.length * 2);
+		list[inDegree[q]++] = key;
+	}
+
+	private void removeIncoming(int q, long key) {
+		long[] list = incoming[q];
+		for (int i = 0; i < inDegree[q]; i++) {
+			if (list[i] == key) {
+				list[i] = list[--inDegree[q]];
+				return;
+			}
+		}
+	}
+
+	/***
+	 * 
+	 * @param symbol
+	 * @return the key of symbol, or -1 if it has none yet
+	 */
+	private int symbolKey(A symbol) {
+		if (symbol instanceof Character)
+			return (Character) symbol;
+		Integer id = symbolIds.get(symbol);
+		return id == null ? -1 : id;
+	}
+
+	/***
+	 * 
+	 * @param symbol
+	 * @return the key of symbol, a new one if it has none
+	 */
+	private int newSymbolKey(A symbol) {
+		int key = symbolKey(symbol);
+		if (key < 0) {
+			key = SYMBOL_OFFSET + symbolList.size();
+			symbolIds.put(symbol, key);
+			symbolList.add(symbol);
+		}
+		return key;
+	}
+
+	@SuppressWarnings("unchecked")
+	private A symbolOf(int key) {
+		if (key < SYMBOL_OFFSET)
+			return (A) Character.valueOf((char) key);
+		return symbolList.get(key - SYMBOL_OFFSET);
 	}
 	
 	/***
@@ -58,13 +204,41 @@ public class FiniteStateAutomata<S, A> {
 	/***
 	 * Copys the old fsa
 	 * 
-	 * @param fsa
+	 * @param old
 	 */
-	public FiniteStateAutomata(FiniteStateAutomata<S, A> fsa) {
+	public FiniteStateAutomata(ReadOnlyFiniteStateAutomata<S, A> old) {
+		if (!(old instanceof FiniteStateAutomata)) {
+			// e.g. a view, which has no own tables, so copy what it shows
+			initial = old.getInitialState();
+			if (initial != null)
+				states.add(initial);
+			for (S q : old.getStates()) {
+				addState(q);
+				for (Tuple<A, S> t : old.getTransitions(q))
+					addTransition(q, t.first(), t.second());
+			}
+			accepting.addAll(old.getAcceptingStates());
+			return;
+		}
+		FiniteStateAutomata<S, A> fsa = (FiniteStateAutomata<S, A>) old;
 		states = new HashSet<>(fsa.states);
 		accepting = new HashSet<>(fsa.accepting);
-		transitions = new HashMap<>(fsa.transitions);
+		transitions = fsa.transitions.clone();
+		stateIds = new HashMap<>(fsa.stateIds);
+		stateList = new ArrayList<>(fsa.stateList);
+		symbolIds = new HashMap<>(fsa.symbolIds);
+		symbolList = new ArrayList<>(fsa.symbolList);
 		initial = fsa.initial;
+		outgoing = new int[fsa.outgoing.length][];
+		incoming = new long[fsa.incoming.length][];
+		for (int i = 0; i < stateList.size(); i++) {
+			if (fsa.outDegree[i] > 0)
+				outgoing[i] = Arrays.copyOf(fsa.outgoing[i], fsa.outDegree[i]);
+			if (fsa.inDegree[i] > 0)
+				incoming[i] = Arrays.copyOf(fsa.incoming[i], fsa.inDegree[i]);
+		}
+		outDegree = fsa.outDegree.clone();
+		inDegree = fsa.inDegree.clone();
 	}
 
 	public void setInitialState(S state) {
@@ -104,38 +278,217 @@ public class FiniteStateAutomata<S, A> {
 		assert (sign != null);
 		states.add(src);
 		states.add(tgt);
-		transitions.put(new Tuple<S, A>(src, sign), tgt);
+		int p = stateId(src);
+		int q = stateId(tgt);
+		int a = newSymbolKey(sign);
+		long key = TransitionTable.pack(p, a);
+		int old = transitions.put(key, q);
+		if (old == q)
+			return;
+		if (old == TransitionTable.NONE)
+			addOutgoing(p, a);
+		else
+			removeIncoming(old, key);
+		addIncoming(q, key);
 	}
 
 	/***
 	 * Removes a Transition
 	 * 
 	 * @param src
-	 *            The target transition
+	 *            The source of the transition
 	 * @param sign
-	 * @throws Exception
+	 *            the sign of the transition
 	 */
 	public void RemoveTransition(S src, A sign) {
-		throw new UnsupportedOperationException();
+		Integer id = stateIds.get(src);
+		int key = symbolKey(sign);
+		if (id == null || key < 0)
+			return;
+		long packed = TransitionTable.pack(id, key);
+		int tgt = transitions.remove(packed);
+		if (tgt != TransitionTable.NONE) {
+			removeOutgoing(id, key);
+			removeIncoming(tgt, packed);
+		}
 	}
 
 	/***
+	 * Gives the outgoing transitions of a state. The set is a read-only view
+	 * on the internal index, so this takes O(1) and allocates no copy. The
+	 * tuples are created while iterating.
 	 * 
 	 * @param state
-	 * @return
+	 * @return the transitions as (symbol, target) tuples
 	 */
 	public Set<Tuple<A, S>> getTransitions(S state) {
-		return transitions.entrySet().stream().filter(e -> e.getKey().first() == state)
-				.map(e -> new Tuple<>(e.getKey().getSecond(), e.getValue())).collect(Collectors.toSet());
+		Integer id = stateIds.get(state);
+		if (id == null || outDegree[id] == 0)
+			return Collections.emptySet();
+		final int p = id;
+		return new AbstractSet<Tuple<A, S>>() {
+			@Override
+			public Iterator<Tuple<A, S>> iterator() {
+				return new Iterator<Tuple<A, S>>() {
+					int i = 0;
+
+					@Override
+					public boolean hasNext() {
+						return i < outDegree[p];
+					}
+
+					@Override
+					public Tuple<A, S> next() {
+						if (!hasNext())
+							throw new NoSuchElementException();
+						int a = outgoing[p][i++];
+						return new Tuple<>(symbolOf(a), stateList.get(transitions.get(TransitionTable.pack(p, a))));
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return outDegree[p];
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				if (!(o instanceof Tuple))
+					return false;
+				@SuppressWarnings("unchecked")
+				Tuple<A, S> t = (Tuple<A, S>) o;
+				S tgt = step(state, t.first());
+				return tgt != null && tgt.equals(t.second());
+			}
+		};
 	}
 
 	/***
+	 * Gives the incoming transitions of a state. The set is a read-only view
+	 * on the internal index, so this takes O(1) and allocates no copy. The
+	 * tuples are created while iterating.
 	 * 
 	 * @param state
+	 * @return the transitions as (symbol, source) tuples
+	 */
+	public Set<Tuple<A, S>> getIncomingTransitions(S state) {
+		Integer id = stateIds.get(state);
+		if (id == null || inDegree[id] == 0)
+			return Collections.emptySet();
+		final int q = id;
+		return new AbstractSet<Tuple<A, S>>() {
+			@Override
+			public Iterator<Tuple<A, S>> iterator() {
+				return new Iterator<Tuple<A, S>>() {
+					int i = 0;
+
+					@Override
+					public boolean hasNext() {
+						return i < inDegree[q];
+					}
+
+					@Override
+					public Tuple<A, S> next() {
+						if (!hasNext())
+							throw new NoSuchElementException();
+						long key = incoming[q][i++];
+						return new Tuple<>(symbolOf(TransitionTable.symbolOf(key)),
+								stateList.get(TransitionTable.stateOf(key)));
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return inDegree[q];
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				if (!(o instanceof Tuple))
+					return false;
+				@SuppressWarnings("unchecked")
+				Tuple<A, S> t = (Tuple<A, S>) o;
+				S tgt = step(t.second(), t.first());
+				return tgt != null && tgt.equals(state);
+			}
+		};
+	}
+
+	/***
+	 * Passes every transition to action, without allocating an entry for it
+	 * as {@link #getTransitions()} does.
+	 * 
+	 * @param action
+	 */
+	public void forEachTransition(TransitionConsumer<? super S, ? super A> action) {
+		for (int i = 0; i < transitions.capacity(); i++) {
+			if (!transitions.isUsed(i))
+				continue;
+			long key = transitions.keyAt(i);
+			action.accept(stateList.get(TransitionTable.stateOf(key)), symbolOf(TransitionTable.symbolOf(key)),
+					stateList.get(transitions.valueAt(i)));
+		}
+	}
+
+	/***
+	 * Gives all transitions of the automata. The set is read-only, use
+	 * {@link #addTransition(Object, Object, Object)} and
+	 * {@link #RemoveTransition(Object, Object)} to change it.
+	 * 
 	 * @return
 	 */
 	public Set<Map.Entry<Tuple<S, A>, S>> getTransitions() {
-		return transitions.entrySet();
+		return new AbstractSet<Map.Entry<Tuple<S, A>, S>>() {
+			@Override
+			public Iterator<Map.Entry<Tuple<S, A>, S>> iterator() {
+				return new Iterator<Map.Entry<Tuple<S, A>, S>>() {
+					int slot = nextSlot(0);
+
+					private int nextSlot(int i) {
+						while (i < transitions.capacity() && !transitions.isUsed(i))
+							i++;
+						return i;
+					}
+
+					@Override
+					public boolean hasNext() {
+						return slot < transitions.capacity();
+					}
+
+					@Override
+					public Map.Entry<Tuple<S, A>, S> next() {
+						if (!hasNext())
+							throw new NoSuchElementException();
+						long key = transitions.keyAt(slot);
+						S tgt = stateList.get(transitions.valueAt(slot));
+						slot = nextSlot(slot + 1);
+						return new AbstractMap.SimpleImmutableEntry<>(new Tuple<>(
+								stateList.get(TransitionTable.stateOf(key)), symbolOf(TransitionTable.symbolOf(key))),
+								tgt);
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return transitions.size();
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				if (!(o instanceof Map.Entry))
+					return false;
+				Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+				if (!(e.getKey() instanceof Tuple))
+					return false;
+				@SuppressWarnings("unchecked")
+				Tuple<S, A> t = (Tuple<S, A>) e.getKey();
+				S tgt = step(t.first(), t.second());
+				return tgt != null && tgt.equals(e.getValue());
+			}
+		};
 	}
 
 	public Set<S> getAcceptingStates() {
@@ -169,32 +522,46 @@ public class FiniteStateAutomata<S, A> {
 	}
 
 	/***
-	 * removes all states and transitions that cant be reached
+	 * removes all states and transitions that cant be reached. This runs in
+	 * O(|Q|+|δ|) using the outgoing index.
 	 */
 	public void removeUnreachable() {
 		HashSet<S> reached = new HashSet<>();
-		LinkedList<S> queue = new LinkedList<>();
+		ArrayDeque<S> queue = new ArrayDeque<>();
+		reached.add(getInitialState());
 		queue.add(getInitialState());
 
 		while (!queue.isEmpty()) {
 			S q = queue.remove();
 			assert (q != null);
-			reached.add(q);
 
 			for (Tuple<A, S> t : getTransitions(q)) {
-				if (!reached.contains(t.second())) {
+				if (reached.add(t.second())) {
 					queue.add(t.second());
 				}
 			}
 		}
 
-		states = reached;
-
-		// remove transitions that are not up to date
-		for (Iterator<Map.Entry<Tuple<S, A>, S>> iterator = getTransitions().iterator(); iterator.hasNext();) {
-			Map.Entry<Tuple<S, A>, S> t = (Map.Entry<Tuple<S, A>, S>) iterator.next();
-			if (!states.contains(t.getKey().first()) || !states.contains(t.getValue()))
-				iterator.remove();
+		// remove the transitions of the unreachable states. A reached state
+		// has no transition into an unreachable one, so it is enough to look
+		// at the outgoing transitions of the unreachable states.
+		for (S q : states) {
+			if (reached.contains(q))
+				continue;
+			Integer id = stateIds.get(q);
+			if (id == null)
+				continue;
+			for (int i = 0; i < outDegree[id]; i++) {
+				long key = TransitionTable.pack(id, outgoing[id][i]);
+				removeIncoming(transitions.remove(key), key);
+			}
+			outgoing[id] = null;
+			outDegree[id] = 0;
+			incoming[id] = null;
+			inDegree[id] = 0;
 		}
+
+		states = reached;
+		accepting.retainAll(reached);
 	}
 }
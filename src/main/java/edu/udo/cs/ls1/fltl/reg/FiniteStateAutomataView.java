@@ -0,0 +1,348 @@
+package edu.udo.cs.ls1.fltl.reg;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import edu.udo.cs.ls1.fltl.Tuple;
+
+/***
+ * A read-only view on a sub-automata of a {@link FiniteStateAutomata}. The
+ * view shares all tables with its base automata and only stores what differs:
+ * a set of states it is restricted to, the removed transitions, and its own
+ * initial and accepting states. A transition (p,a,q) of the base is part of
+ * the view iff p and q are states of the view and (p,a) is not removed.
+ *
+ * A view of a view refers directly to the base automata and has one map of
+ * all its removed transitions, so a lookup does not get slower with the
+ * number of views in between. The base must not be changed while a view on it
+ * is used.
+ *
+ * @author Kai Sauerwald
+ *
+ * @param <S>
+ *            The type of the states
+ * @param <A>
+ *            The type of the symbols
+ */
+public class FiniteStateAutomataView<S, A> implements ReadOnlyFiniteStateAutomata<S, A> {
+
+	private final FiniteStateAutomata<S, A> base;
+
+	/***
+	 * the states of the view, null if it has all states of the base
+	 */
+	private final Set<S> mask;
+
+	/***
+	 * the removed transitions, as the symbols by source, null if none are
+	 * removed
+	 */
+	private final Map<S, Set<A>> removed;
+
+	private final S initial;
+
+	/***
+	 * the accepting states, null if these are the accepting states of the
+	 * base that are part of the view
+	 */
+	private final Set<S> accepting;
+
+	private FiniteStateAutomataView(FiniteStateAutomata<S, A> base, Set<S> mask, Map<S, Set<A>> removed, S initial,
+			Set<S> accepting) {
+		this.base = base;
+		this.mask = mask;
+		this.removed = removed;
+		this.initial = initial;
+		this.accepting = accepting;
+	}
+
+	/***
+	 * Creates a view that shows the whole automata.
+	 *
+	 * @param fsa
+	 * @return the view, fsa itself if it is a view
+	 */
+	public static <S, A> FiniteStateAutomataView<S, A> of(ReadOnlyFiniteStateAutomata<S, A> fsa) {
+		if (fsa instanceof FiniteStateAutomataView)
+			return (FiniteStateAutomataView<S, A>) fsa;
+		FiniteStateAutomata<S, A> base = fsa instanceof FiniteStateAutomata ? (FiniteStateAutomata<S, A>) fsa
+				: new FiniteStateAutomata<>(fsa);
+		return new FiniteStateAutomataView<>(base, null, null, fsa.getInitialState(), null);
+	}
+
+	/***
+	 * Restricts the view to some of its states.
+	 *
+	 * @param states
+	 *            the states, a subset of the states of this view. It is not
+	 *            copied and must not be changed afterwards.
+	 * @return a new view
+	 */
+	public FiniteStateAutomataView<S, A> restrict(Set<S> states) {
+		Set<S> acc = null;
+		if (accepting != null) {
+			acc = new HashSet<>();
+			for (S q : accepting)
+				if (states.contains(q))
+					acc.add(q);
+		}
+		return new FiniteStateAutomataView<>(base, states, removed, initial, acc);
+	}
+
+	/***
+	 * Removes transitions from the view.
+	 *
+	 * @param transitions
+	 *            for a state, the symbols of its removed transitions. The map
+	 *            and the sets are not copied and must not be changed
+	 *            afterwards.
+	 * @return a new view
+	 */
+	public FiniteStateAutomataView<S, A> removeTransitions(Map<S, Set<A>> transitions) {
+		if (removed == null)
+			return new FiniteStateAutomataView<>(base, mask, transitions, initial, accepting);
+		Map<S, Set<A>> r = new HashMap<>(removed);
+		transitions.forEach((q, symbols) -> r.merge(q, symbols, (old, add) -> {
+			Set<A> union = new HashSet<>(old);
+			union.addAll(add);
+			return union;
+		}));
+		return new FiniteStateAutomataView<>(base, mask, r, initial, accepting);
+	}
+
+	/***
+	 *
+	 * @param state
+	 *            a state of this view
+	 * @return a new view with state as initial state
+	 */
+	public FiniteStateAutomataView<S, A> withInitialState(S state) {
+		return new FiniteStateAutomataView<>(base, mask, removed, state, accepting);
+	}
+
+	/***
+	 *
+	 * @param states
+	 *            the accepting states, a subset of the states of this view. It
+	 *            is not copied and must not be changed afterwards.
+	 * @return a new view with states as accepting states
+	 */
+	public FiniteStateAutomataView<S, A> withAcceptingStates(Set<S> states) {
+		return new FiniteStateAutomataView<>(base, mask, removed, initial, states);
+	}
+
+	private boolean contains(S state) {
+		return mask == null ? base.getStates().contains(state) : mask.contains(state);
+	}
+
+	/***
+	 * 
+	 * @return the symbols of the removed transitions of state, or null
+	 */
+	private Set<A> removedOf(S state) {
+		return removed == null ? null : removed.get(state);
+	}
+
+	@Override
+	public S step(S q, A symbol) {
+		if (!contains(q))
+			return null;
+		Set<A> gone = removedOf(q);
+		if (gone != null && gone.contains(symbol))
+			return null;
+		S tgt = base.step(q, symbol);
+		return tgt != null && contains(tgt) ? tgt : null;
+	}
+
+	@Override
+	public S getInitialState() {
+		return initial;
+	}
+
+	@Override
+	public Set<S> getStates() {
+		return Collections.unmodifiableSet(mask == null ? base.getStates() : mask);
+	}
+
+	@Override
+	public Set<Tuple<A, S>> getTransitions(S state) {
+		if (!contains(state))
+			return Collections.emptySet();
+		Set<A> gone = removedOf(state);
+		if (mask == null && gone == null)
+			return base.getTransitions(state);
+		return new FilteredSet<>(base.getTransitions(state),
+				t -> contains(t.second()) && (gone == null || !gone.contains(t.first())));
+	}
+
+	@Override
+	public Set<Tuple<A, S>> getIncomingTransitions(S state) {
+		if (!contains(state))
+			return Collections.emptySet();
+		if (mask == null && removed == null)
+			return base.getIncomingTransitions(state);
+		return new FilteredSet<>(base.getIncomingTransitions(state), t -> {
+			if (!contains(t.second()))
+				return false;
+			Set<A> gone = removedOf(t.second());
+			return gone == null || !gone.contains(t.first());
+		});
+	}
+
+	@Override
+	public Set<Map.Entry<Tuple<S, A>, S>> getTransitions() {
+		if (mask == null && removed == null)
+			return base.getTransitions();
+		return new AbstractSet<Map.Entry<Tuple<S, A>, S>>() {
+			private int size = -1;
+
+			@Override
+			public Iterator<Map.Entry<Tuple<S, A>, S>> iterator() {
+				final Iterator<S> sources = getStates().iterator();
+				return new Iterator<Map.Entry<Tuple<S, A>, S>>() {
+					S src = null;
+					Iterator<Tuple<A, S>> out = Collections.emptyIterator();
+
+					@Override
+					public boolean hasNext() {
+						while (!out.hasNext() && sources.hasNext()) {
+							src = sources.next();
+							out = getTransitions(src).iterator();
+						}
+						return out.hasNext();
+					}
+
+					@Override
+					public Map.Entry<Tuple<S, A>, S> next() {
+						if (!hasNext())
+							throw new NoSuchElementException();
+						Tuple<A, S> t = out.next();
+						return new AbstractMap.SimpleImmutableEntry<>(new Tuple<>(src, t.first()), t.second());
+					}
+				};
+			}
+
+			@Override
+			public boolean isEmpty() {
+				return size < 0 ? !iterator().hasNext() : size == 0;
+			}
+
+			/***
+			 * scans all transitions of the view on the first call, use
+			 * {@link #isEmpty()} or {@link FiniteStateAutomataView#forEachTransition}
+			 * where possible
+			 */
+			@Override
+			public int size() {
+				if (size < 0) {
+					int n = 0;
+					for (S q : getStates())
+						n += getTransitions(q).size();
+					size = n;
+				}
+				return size;
+			}
+		};
+	}
+
+	@Override
+	public void forEachTransition(TransitionConsumer<? super S, ? super A> action) {
+		if (mask == null && removed == null) {
+			base.forEachTransition(action);
+			return;
+		}
+		for (S q : getStates())
+			for (Tuple<A, S> t : getTransitions(q))
+				action.accept(q, t.first(), t.second());
+	}
+
+	@Override
+	public Set<S> getAcceptingStates() {
+		if (accepting != null)
+			return Collections.unmodifiableSet(accepting);
+		if (mask == null)
+			return Collections.unmodifiableSet(base.getAcceptingStates());
+		return new FilteredSet<>(base.getAcceptingStates(), this::contains);
+	}
+
+	@Override
+	public boolean isAccepting(S state) {
+		if (accepting != null)
+			return accepting.contains(state);
+		return contains(state) && base.isAccepting(state);
+	}
+
+	/***
+	 * A read-only view on the elements of a set that fulfill a predicate.
+	 */
+	private static class FilteredSet<E> extends AbstractSet<E> {
+		private final Set<E> set;
+		private final Predicate<E> filter;
+
+		FilteredSet(Set<E> set, Predicate<E> filter) {
+			this.set = set;
+			this.filter = filter;
+		}
+
+		@Override
+		public Iterator<E> iterator() {
+			final Iterator<E> it = set.iterator();
+			return new Iterator<E>() {
+				E next = null;
+				boolean ready = false;
+
+				@Override
+				public boolean hasNext() {
+					while (!ready && it.hasNext()) {
+						E e = it.next();
+						if (filter.test(e)) {
+							next = e;
+							ready = true;
+						}
+					}
+					return ready;
+				}
+
+				@Override
+				public E next() {
+					if (!hasNext())
+						throw new NoSuchElementException();
+					ready = false;
+					return next;
+				}
+			};
+		}
+
+		/***
+		 * stops at the first element that fulfills the filter, where
+		 * {@link #size()} has to test all
+		 */
+		@Override
+		public boolean isEmpty() {
+			return !iterator().hasNext();
+		}
+
+		@Override
+		public int size() {
+			int n = 0;
+			for (E e : set)
+				if (filter.test(e))
+					n++;
+			return n;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public boolean contains(Object o) {
+			return set.contains(o) && filter.test((E) o);
+		}
+	}
+}
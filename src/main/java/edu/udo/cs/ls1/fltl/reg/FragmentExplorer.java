@@ -0,0 +1,260 @@
+package edu.udo.cs.ls1.fltl.reg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.RegExp;
+import edu.udo.cs.ls1.fltl.reg.Anzeige.Fragment;
+import edu.udo.cs.ls1.fltl.reg.Anzeige.Stats;
+
+/***
+ * Computes the minimal automata of all concatenations of fragments. The
+ * combinations are numbered and the ranges of numbers are split between the
+ * workers of a fork/join pool. Only the results with the most states and
+ * transitions are kept, and for every fragment a histogram of the numbers of
+ * states, so the memory does not grow with the number of combinations.
+ *
+ * @author Kai Sauerwald
+ *
+ */
+public class FragmentExplorer {
+
+	/***
+	 * Gives the characters of a fragment.
+	 */
+	public interface Alphabets {
+		/***
+		 *
+		 * @param fragments
+		 *            the number of fragments of the combination
+		 * @param position
+		 *            the position of the fragment, from 0
+		 * @return the characters of the fragment
+		 */
+		char[] get(int fragments, int position);
+	}
+
+	private static final String POOL = "cdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+	/***
+	 * Alphabets of the given size, where every fragment has a and b and half
+	 * of its other characters in common with the fragment before it.
+	 *
+	 * @param size
+	 *            the number of characters of a fragment, at least 2
+	 * @return the alphabets
+	 */
+	public static Alphabets overlapping(int size) {
+		if (size < 2)
+			throw new IllegalArgumentException("size has to be at least 2");
+		return (fragments, position) -> {
+			int own = size - 2;
+			int start = position * Math.max(1, own / 2);
+			if (start + own > POOL.length())
+				throw new IllegalArgumentException(
+						"not enough characters for " + fragments + " fragments of size " + size);
+			char[] result = new char[size];
+			result[0] = 'a';
+			result[1] = 'b';
+			POOL.getChars(start, start + own, result, 2);
+			return result;
+		};
+	}
+
+	/***
+	 * the order of the results, by states and transitions. The fragments
+	 * decide between equal sizes, so the kept results do not depend on the
+	 * order of the computation.
+	 */
+	static final Comparator<Stats> BY_SIZE = Comparator.<Stats> comparingInt(s -> s.states)
+			.thenComparingInt(s -> s.transitions).thenComparing(s -> s.fn);
+
+	/***
+	 * ranges of at most this many combinations are not split
+	 */
+	private static final int GRAIN = 16;
+
+	private final ForkJoinPool pool;
+	private final int topK;
+
+	/***
+	 *
+	 * @param pool
+	 *            the pool for the workers
+	 * @param topK
+	 *            the number of results that are kept
+	 */
+	public FragmentExplorer(ForkJoinPool pool, int topK) {
+		if (topK < 0)
+			throw new IllegalArgumentException("topK is negative: " + topK);
+		this.pool = pool;
+		this.topK = topK;
+	}
+
+	/***
+	 * The results of an exploration.
+	 */
+	public static class Result {
+		private long combinations = 0;
+		private final PriorityQueue<Stats> top = new PriorityQueue<>(BY_SIZE);
+		private final Map<Fragment, SortedMap<Integer, Long>> histograms = new EnumMap<>(Fragment.class);
+
+		/***
+		 * Keeps stat, if it is one of the topK biggest results.
+		 */
+		private void offer(Stats stat, int topK) {
+			if (top.size() < topK)
+				top.add(stat);
+			else if (topK > 0 && BY_SIZE.compare(stat, top.peek()) > 0) {
+				top.poll();
+				top.add(stat);
+			}
+		}
+
+		private void add(Stats stat, Fragment[] fragments, int topK) {
+			combinations++;
+			offer(stat, topK);
+			// every fragment counts once per combination
+			boolean[] seen = new boolean[Fragment.values().length];
+			for (Fragment f : fragments) {
+				if (seen[f.ordinal()])
+					continue;
+				seen[f.ordinal()] = true;
+				histograms.computeIfAbsent(f, x -> new TreeMap<>()).merge(stat.states, 1L, Long::sum);
+			}
+		}
+
+		private Result merge(Result r, int topK) {
+			combinations += r.combinations;
+			for (Stats s : r.top)
+				offer(s, topK);
+			for (Map.Entry<Fragment, SortedMap<Integer, Long>> e : r.histograms.entrySet()) {
+				SortedMap<Integer, Long> h = histograms.computeIfAbsent(e.getKey(), x -> new TreeMap<>());
+				e.getValue().forEach((states, count) -> h.merge(states, count, Long::sum));
+			}
+			return this;
+		}
+
+		/***
+		 *
+		 * @return the number of combinations
+		 */
+		public long getCombinations() {
+			return combinations;
+		}
+
+		/***
+		 *
+		 * @return the results with the most states and transitions, sorted
+		 *         ascending
+		 */
+		public List<Stats> getTop() {
+			List<Stats> result = new ArrayList<>(top);
+			result.sort(BY_SIZE);
+			return result;
+		}
+
+		/***
+		 *
+		 * @return for every fragment, how many of the combinations that
+		 *         contain it have how many states
+		 */
+		public Map<Fragment, SortedMap<Integer, Long>> getHistograms() {
+			return Collections.unmodifiableMap(histograms);
+		}
+	}
+
+	/***
+	 * Computes the automata of all combinations of minFragments to
+	 * maxFragments fragments.
+	 *
+	 * @param minFragments
+	 * @param maxFragments
+	 * @param alphabets
+	 *            the characters of the fragments
+	 * @return the results
+	 */
+	public Result explore(int minFragments, int maxFragments, Alphabets alphabets) {
+		if (minFragments < 1 || minFragments > maxFragments)
+			throw new IllegalArgumentException("invalid number of fragments: " + minFragments + ".." + maxFragments);
+		Result result = new Result();
+		for (int k = minFragments; k <= maxFragments; k++) {
+			long combinations = 1;
+			for (int i = 0; i < k; i++)
+				combinations = Math.multiplyExact(combinations, Fragment.values().length);
+			char[][] chars = new char[k][];
+			for (int i = 0; i < k; i++)
+				chars[i] = alphabets.get(k, i);
+			result.merge(pool.invoke(new Range(chars, 0, combinations)), topK);
+		}
+		return result;
+	}
+
+	/***
+	 * The combinations with the numbers lo to hi-1. The digits of a number to
+	 * the base 6 are the fragments.
+	 */
+	private class Range extends RecursiveTask<Result> {
+		private static final long serialVersionUID = 1L;
+
+		final char[][] chars;
+		final long lo;
+		final long hi;
+
+		Range(char[][] chars, long lo, long hi) {
+			this.chars = chars;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		@Override
+		protected Result compute() {
+			if (hi - lo <= GRAIN) {
+				Result result = new Result();
+				Fragment[] fragments = new Fragment[chars.length];
+				for (long i = lo; i < hi; i++) {
+					decode(i, fragments);
+					result.add(evaluate(fragments), fragments, topK);
+				}
+				return result;
+			}
+			long mid = (lo + hi) >>> 1;
+			Range left = new Range(chars, lo, mid);
+			left.fork();
+			Result right = new Range(chars, mid, hi).compute();
+			return left.join().merge(right, topK);
+		}
+
+		private void decode(long number, Fragment[] fragments) {
+			Fragment[] values = Fragment.values();
+			for (int i = fragments.length - 1; i >= 0; i--) {
+				fragments[i] = values[(int) (number % values.length)];
+				number /= values.length;
+			}
+		}
+
+		private Stats evaluate(Fragment[] fragments) {
+			StringBuilder regexp = new StringBuilder();
+			for (int i = 0; i < fragments.length; i++)
+				regexp.append(Anzeige.createPattern(chars[i], fragments[i]));
+			Automaton aut = new RegExp(regexp.toString()).toAutomaton(true);
+
+			Stats stat = new Stats();
+			stat.fn = Arrays.asList(fragments).toString();
+			stat.states = aut.getNumberOfStates();
+			stat.transitions = aut.getNumberOfTransitions();
+			return stat;
+		}
+	}
+}
@@ -0,0 +1,290 @@
+package edu.udo.cs.ls1.fltl.reg;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/***
+ * The construction of Glushkov, that translates a regular expression into a
+ * nondeterministic automata without epsilon-transitions. The automata has one
+ * state for every occurrence of a character (class) in the expression, plus
+ * the initial state, so it stays linear in the size of the expression, where
+ * the minimal deterministic automata may be exponential.
+ *
+ * The syntax is the one of brics: characters, escapes \c, classes [a-z],
+ * grouping (), union |, and the repetitions *, +, ?, {n}, {n,} and {n,m}. The
+ * other operators of brics are not supported.
+ *
+ * @see <a href=
+ *      "https://en.wikipedia.org/wiki/Glushkov%27s_construction_algorithm">Wikipedia</a>
+ *
+ * @author Kai Sauerwald
+ *
+ */
+class Glushkov {
+
+	/***
+	 * the characters that have a meaning in the syntax of brics
+	 */
+	private static final String SPECIAL = "|&?*+{}()[]~#@\"<>.\\";
+
+	private final String regexp;
+	private int pos = 0;
+
+	/***
+	 * the characters of the positions. Position 0 is the initial state and
+	 * has none.
+	 */
+	private final List<char[]> labels = new ArrayList<>();
+	private final List<BitSet> follow = new ArrayList<>();
+
+	private Glushkov(String regexp) {
+		this.regexp = regexp;
+		labels.add(null);
+		follow.add(null);
+	}
+
+	/***
+	 *
+	 * @param regexp
+	 * @return the Glushkov automata of regexp. The states are the positions,
+	 *         0 is the initial state.
+	 * @throws IllegalArgumentException
+	 *             if regexp is not valid or uses an unsupported operator
+	 */
+	static NondeterministicFiniteStateAutomata<Integer, Character> construct(String regexp) {
+		Glushkov g = new Glushkov(regexp);
+		Node root = g.parseUnion();
+		if (g.pos < regexp.length())
+			throw g.error("unexpected " + regexp.charAt(g.pos));
+		Info info = root.visit(g);
+
+		NondeterministicFiniteStateAutomata<Integer, Character> nfa = new NondeterministicFiniteStateAutomata<>();
+		nfa.addInitialState(0);
+		for (int p = 1; p < g.labels.size(); p++)
+			nfa.addState(p);
+		g.connect(nfa, 0, info.first);
+		for (int p = 1; p < g.labels.size(); p++)
+			g.connect(nfa, p, g.follow.get(p));
+		for (int p = info.last.nextSetBit(0); p >= 0; p = info.last.nextSetBit(p + 1))
+			nfa.setAccepting(p, true);
+		if (info.nullable)
+			nfa.setAccepting(0, true);
+		return nfa;
+	}
+
+	private void connect(NondeterministicFiniteStateAutomata<Integer, Character> nfa, int src, BitSet targets) {
+		for (int p = targets.nextSetBit(0); p >= 0; p = targets.nextSetBit(p + 1))
+			for (char c : labels.get(p))
+				nfa.addTransition(src, c, p);
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(message + " at position " + pos + " of " + regexp);
+	}
+
+	/***
+	 * nullable, first and last of a sub-expression
+	 */
+	private static class Info {
+		boolean nullable;
+		BitSet first = new BitSet();
+		BitSet last = new BitSet();
+
+		Info(boolean nullable) {
+			this.nullable = nullable;
+		}
+	}
+
+	/***
+	 * A sub-expression. Every visit creates new positions, so a node may be
+	 * used several times, e.g. for a{3}.
+	 */
+	private interface Node {
+		Info visit(Glushkov g);
+	}
+
+	private static Info concat(Glushkov g, Info left, Info right) {
+		for (int l = left.last.nextSetBit(0); l >= 0; l = left.last.nextSetBit(l + 1))
+			g.follow.get(l).or(right.first);
+		if (left.nullable)
+			left.first.or(right.first);
+		if (right.nullable)
+			left.last.or(right.last);
+		else
+			left.last = right.last;
+		left.nullable &= right.nullable;
+		return left;
+	}
+
+	private static Info star(Glushkov g, Info info) {
+		for (int l = info.last.nextSetBit(0); l >= 0; l = info.last.nextSetBit(l + 1))
+			g.follow.get(l).or(info.first);
+		info.nullable = true;
+		return info;
+	}
+
+	private Node parseUnion() {
+		List<Node> alternatives = new ArrayList<>();
+		alternatives.add(parseConcat());
+		while (pos < regexp.length() && regexp.charAt(pos) == '|') {
+			pos++;
+			alternatives.add(parseConcat());
+		}
+		if (alternatives.size() == 1)
+			return alternatives.get(0);
+		return g -> {
+			Info result = new Info(false);
+			for (Node n : alternatives) {
+				Info i = n.visit(g);
+				result.nullable |= i.nullable;
+				result.first.or(i.first);
+				result.last.or(i.last);
+			}
+			return result;
+		};
+	}
+
+	private Node parseConcat() {
+		List<Node> factors = new ArrayList<>();
+		while (pos < regexp.length() && regexp.charAt(pos) != '|' && regexp.charAt(pos) != ')')
+			factors.add(parseRepeat());
+		return g -> {
+			Info result = new Info(true);
+			for (Node n : factors)
+				result = concat(g, result, n.visit(g));
+			return result;
+		};
+	}
+
+	private Node parseRepeat() {
+		Node node = parseAtom();
+		while (pos < regexp.length()) {
+			char c = regexp.charAt(pos);
+			int min;
+			int max;
+			if (c == '*') {
+				min = 0;
+				max = -1;
+			} else if (c == '+') {
+				min = 1;
+				max = -1;
+			} else if (c == '?') {
+				min = 0;
+				max = 1;
+			} else if (c == '{') {
+				pos++;
+				min = parseNumber();
+				max = min;
+				if (pos < regexp.length() && regexp.charAt(pos) == ',') {
+					pos++;
+					max = pos < regexp.length() && Character.isDigit(regexp.charAt(pos)) ? parseNumber() : -1;
+				}
+				if (pos >= regexp.length() || regexp.charAt(pos) != '}')
+					throw error("expected }");
+				if (max != -1 && max < min)
+					throw error("invalid repetition");
+			} else
+				break;
+			pos++;
+			node = repeat(node, min, max);
+		}
+		return node;
+	}
+
+	private static Node repeat(Node node, int min, int max) {
+		return g -> {
+			Info result = new Info(true);
+			for (int i = 0; i < min; i++)
+				result = concat(g, result, node.visit(g));
+			if (max == -1)
+				return concat(g, result, star(g, node.visit(g)));
+			for (int i = min; i < max; i++) {
+				Info optional = node.visit(g);
+				optional.nullable = true;
+				result = concat(g, result, optional);
+			}
+			return result;
+		};
+	}
+
+	private int parseNumber() {
+		int start = pos;
+		while (pos < regexp.length() && Character.isDigit(regexp.charAt(pos)))
+			pos++;
+		if (start == pos)
+			throw error("expected a number");
+		return Integer.parseInt(regexp.substring(start, pos));
+	}
+
+	private Node parseAtom() {
+		char c = regexp.charAt(pos);
+		if (c == '(') {
+			pos++;
+			Node inner = pos < regexp.length() && regexp.charAt(pos) == ')' ? g -> new Info(true) : parseUnion();
+			if (pos >= regexp.length() || regexp.charAt(pos) != ')')
+				throw error("expected )");
+			pos++;
+			return inner;
+		}
+		if (c == '[') {
+			pos++;
+			return symbol(parseClass());
+		}
+		if (c == '\\') {
+			if (++pos >= regexp.length())
+				throw error("expected a character");
+			return symbol(new char[] { regexp.charAt(pos++) });
+		}
+		if (SPECIAL.indexOf(c) >= 0)
+			throw error("unsupported operator " + c);
+		pos++;
+		return symbol(new char[] { c });
+	}
+
+	private char[] parseClass() {
+		if (pos < regexp.length() && regexp.charAt(pos) == '^')
+			throw error("unsupported operator ^");
+		StringBuilder chars = new StringBuilder();
+		while (pos < regexp.length() && regexp.charAt(pos) != ']') {
+			char from = parseClassChar();
+			char to = from;
+			if (pos + 1 < regexp.length() && regexp.charAt(pos) == '-' && regexp.charAt(pos + 1) != ']') {
+				pos++;
+				to = parseClassChar();
+			}
+			if (to < from)
+				throw error("invalid range");
+			for (int x = from; x <= to; x++)
+				chars.append((char) x);
+		}
+		if (pos >= regexp.length())
+			throw error("expected ]");
+		pos++;
+		if (chars.length() == 0)
+			throw error("empty class");
+		return chars.toString().toCharArray();
+	}
+
+	private char parseClassChar() {
+		char c = regexp.charAt(pos++);
+		if (c == '\\') {
+			if (pos >= regexp.length())
+				throw error("expected a character");
+			c = regexp.charAt(pos++);
+		}
+		return c;
+	}
+
+	private static Node symbol(char[] chars) {
+		return g -> {
+			int p = g.labels.size();
+			g.labels.add(chars);
+			g.follow.add(new BitSet());
+			Info info = new Info(false);
+			info.first.set(p);
+			info.last.set(p);
+			return info;
+		};
+	}
+}
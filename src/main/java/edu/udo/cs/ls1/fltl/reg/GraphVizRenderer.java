@@ -0,0 +1,196 @@
+package edu.udo.cs.ls1.fltl.reg;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+
+/***
+ * Renders .dot files in the background. The files wait in a bounded queue,
+ * and a few workers each start one renderer process at a time. A worker
+ * passes all files that are waiting, up to the batch size, to one process,
+ * so a renderer like dot -O is started once for several graphs.
+ *
+ * The renderer is given the files as the last arguments and has to write the
+ * output for a file next to it, with the output suffix appended to the name.
+ *
+ * @author Kai Sauerwald
+ *
+ */
+public class GraphVizRenderer implements AutoCloseable {
+
+	public static final List<String> DEFAULT_COMMAND = Collections
+			.unmodifiableList(Arrays.asList("/usr/bin/dot", "-Tpdf", "-O"));
+
+	private static class Job {
+		final File file;
+		final CompletableFuture<File> result = new CompletableFuture<>();
+
+		Job(File file) {
+			this.file = file;
+		}
+	}
+
+	/***
+	 * tells a worker to stop, it is queued behind all files
+	 */
+	private static final Job END = new Job(null);
+
+	private final List<String> command;
+	private final String outputSuffix;
+	private final int batchSize;
+	private final ArrayBlockingQueue<Job> queue;
+	private final List<Thread> workers = new ArrayList<>();
+	private boolean closed = false;
+
+	/***
+	 * A renderer with dot, that writes PDF files.
+	 */
+	public GraphVizRenderer() {
+		this(DEFAULT_COMMAND, ".pdf", 2, 16, 8);
+	}
+
+	/***
+	 *
+	 * @param command
+	 *            the renderer and its arguments, the files are appended
+	 * @param outputSuffix
+	 *            what the renderer appends to the name of a file for its
+	 *            output, like .pdf
+	 * @param processes
+	 *            the number of renderer processes that run at the same time
+	 * @param queueCapacity
+	 *            the number of files that may wait, at least processes
+	 * @param batchSize
+	 *            the maximal number of files for one process
+	 */
+	public GraphVizRenderer(List<String> command, String outputSuffix, int processes, int queueCapacity,
+			int batchSize) {
+		if (command.isEmpty())
+			throw new IllegalArgumentException("command is empty");
+		if (processes < 1 || queueCapacity < 1 || batchSize < 1)
+			throw new IllegalArgumentException("processes, queueCapacity and batchSize have to be positive");
+		// the stop marks of all workers have to fit into the queue, see work()
+		if (processes > queueCapacity)
+			throw new IllegalArgumentException("queueCapacity has to be at least processes");
+		this.command = new ArrayList<>(command);
+		this.outputSuffix = outputSuffix;
+		this.batchSize = batchSize;
+		queue = new ArrayBlockingQueue<>(queueCapacity);
+		for (int i = 0; i < processes; i++) {
+			Thread t = new Thread(this::work, "graphviz-renderer-" + (i + 1));
+			t.setDaemon(true);
+			workers.add(t);
+			t.start();
+		}
+	}
+
+	/***
+	 * Queues a file for rendering. Waits while the queue is full.
+	 *
+	 * @param file
+	 *            a .dot file
+	 * @return the output file, after it is written
+	 * @throws InterruptedException
+	 */
+	public CompletableFuture<File> render(File file) throws InterruptedException {
+		Job job = new Job(file);
+		synchronized (this) {
+			if (closed)
+				throw new IllegalStateException("renderer is closed");
+			queue.put(job);
+		}
+		return job.result;
+	}
+
+	private void work() {
+		List<Job> batch = new ArrayList<>(batchSize);
+		while (true) {
+			try {
+				batch.add(queue.take());
+			} catch (InterruptedException e) {
+				return;
+			}
+			queue.drainTo(batch, batchSize - 1);
+			// a stop mark is the last job of this worker. The stop marks are
+			// queued after all files, so only the stop marks of the other
+			// workers can be behind it. They are put back with add, which
+			// does not fail: then the queue only holds stop marks, and there
+			// are not more of them than the capacity.
+			int end = batch.indexOf(END);
+			if (end >= 0) {
+				List<Job> rest = batch.subList(end + 1, batch.size());
+				for (Job j : rest)
+					queue.add(j);
+				rest.clear();
+				batch.remove(end);
+			}
+			if (!batch.isEmpty())
+				run(batch);
+			batch.clear();
+			if (end >= 0)
+				return;
+		}
+	}
+
+	/***
+	 * Renders the files with one process. The futures of the files are
+	 * completed in any case, so a failure only ends this batch.
+	 */
+	private void run(List<Job> batch) {
+		List<String> cmd = new ArrayList<>(command);
+		for (Job j : batch)
+			cmd.add(j.file.getPath());
+		Process p = null;
+		try {
+			p = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+			// the output is read, so the renderer never blocks on a full pipe
+			try (BufferedReader messages = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
+				String line;
+				while ((line = messages.readLine()) != null)
+					System.err.println(line);
+			}
+			int exit = p.waitFor();
+			if (exit != 0)
+				throw new IOException(String.join(" ", cmd) + " exited with " + exit);
+			for (Job j : batch)
+				j.result.complete(new File(j.file.getPath() + outputSuffix));
+		} catch (IOException | InterruptedException | RuntimeException e) {
+			if (e instanceof InterruptedException)
+				Thread.currentThread().interrupt();
+			// the renderer is not needed anymore
+			if (p != null)
+				p.destroy();
+			for (Job j : batch)
+				j.result.completeExceptionally(e);
+		}
+	}
+
+	/***
+	 * Waits until all queued files are rendered. If the waiting is
+	 * interrupted, the interrupt flag is set again and the remaining files
+	 * are rendered in the background.
+	 */
+	@Override
+	public void close() {
+		try {
+			synchronized (this) {
+				if (closed)
+					return;
+				closed = true;
+				for (int i = 0; i < workers.size(); i++)
+					queue.put(END);
+			}
+			for (Thread t : workers)
+				t.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package edu.udo.cs.ls1.fltl.reg;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.State;
+import dk.brics.automaton.Transition;
+import edu.udo.cs.ls1.fltl.Tuple;
+import edu.udo.cs.ls1.fltl.metrics.Metrics;
+import edu.udo.cs.ls1.fltl.metrics.Metrics.Timer;
+
+/***
+ * Writes automata in the dot language of GraphViz. The names of the states
+ * are computed once before writing, and the text is written directly to the
+ * writer, so the time and the memory are linear in the size of the automata.
+ *
+ * @author Kai Sauerwald
+ *
+ */
+public class GraphVizWriter {
+
+	private GraphVizWriter() {
+	}
+
+	/***
+	 * Gives the label of a character. If isEnabled, letters and digits are
+	 * written as a, b and c with the number of the character as index.
+	 *
+	 * @param c
+	 * @param isEnabled
+	 * @return the label in the HTML-like syntax of GraphViz
+	 */
+	public static String c2sym(char c, boolean isEnabled) {
+		if (c == '|')
+			return "+";
+		if (isEnabled) {
+			if (c >= 'a' && c <= 'z') {
+				return "a<SUB>" + (c - 'a' + 1) + "</SUB>";
+			} else if (c >= 'A' && c <= 'Z') {
+				return "b<SUB>" + (c - 'A' + 1) + "</SUB>";
+			} else if (c >= '0' && c <= '9') {
+				return "c<SUB>" + (c - '0' + 1) + "</SUB>";
+			}
+		}
+		return "" + c;
+	}
+
+	/***
+	 * Writes a brics automata. The states are named like before, by their
+	 * position relative to the initial state.
+	 *
+	 * @param aut
+	 * @param caption
+	 *            the caption of the graph, in the HTML-like syntax of GraphViz
+	 * @param isEnabled
+	 *            see {@link #c2sym(char, boolean)}
+	 * @param out
+	 * @throws IOException
+	 *             if out throws one
+	 */
+	public static void write(Automaton aut, String caption, boolean isEnabled, Writer out) throws IOException {
+		long start = Metrics.start();
+		Set<State> states = aut.getStates();
+		State initial = aut.getInitialState();
+		int n = states.size();
+		Map<State, String> names = new HashMap<>(states.size() * 2);
+		for (State s : states)
+			names.put(s, "q" + (s.compareTo(initial) + n) % (n + 1));
+
+		writeHeader(caption, out);
+		for (State s : aut.getAcceptStates())
+			out.append(names.get(s)).append(' ');
+		writeInitial(names.get(initial), out);
+		for (State s : states) {
+			String name = names.get(s);
+			for (Transition t : s.getTransitions()) {
+				out.append(name).append(" -> ").append(names.get(t.getDest())).append(" [ label = <")
+						.append(c2sym(t.getMin(), isEnabled));
+				if (t.getMin() != t.getMax())
+					out.append(" - ").append(c2sym(t.getMax(), isEnabled));
+				out.append("> ];\n");
+			}
+		}
+		out.append('}');
+		Metrics.stop(Timer.DOT_EXPORT, start);
+	}
+
+	/***
+	 * Writes an automata. The initial state is named q0, the other states are
+	 * numbered in the order of {@link FiniteStateAutomata#getStates()}. The
+	 * symbols are written as their toString.
+	 *
+	 * @param fsa
+	 * @param caption
+	 *            the caption of the graph, in the HTML-like syntax of GraphViz
+	 * @param out
+	 * @throws IOException
+	 *             if out throws one
+	 */
+	public static <S, A> void write(ReadOnlyFiniteStateAutomata<S, A> fsa, String caption, Writer out) throws IOException {
+		long start = Metrics.start();
+		Set<S> states = fsa.getStates();
+		S initial = fsa.getInitialState();
+		Map<S, String> names = new HashMap<>(states.size() * 2);
+		names.put(initial, "q0");
+		for (S s : states)
+			if (!names.containsKey(s))
+				names.put(s, "q" + names.size());
+
+		writeHeader(caption, out);
+		for (S s : fsa.getAcceptingStates())
+			out.append(names.get(s)).append(' ');
+		writeInitial(names.get(initial), out);
+		for (S s : states) {
+			String name = names.get(s);
+			for (Tuple<A, S> t : fsa.getTransitions(s)) {
+				out.append(name).append(" -> ").append(names.get(t.second())).append(" [ label = <");
+				escape(t.first().toString(), out);
+				out.append("> ];\n");
+			}
+		}
+		out.append('}');
+		Metrics.stop(Timer.DOT_EXPORT, start);
+	}
+
+	private static void writeHeader(String caption, Writer out) throws IOException {
+		out.append("digraph finite_state_machine { graph [label=<").append(caption).append(">];\n")
+				.append("	rankdir=LR;\n").append("	size=\"8,5\"\n").append("  node [shape = point ]; qi \n")
+				.append("node [shape = doublecircle]; ");
+	}
+
+	/***
+	 * Ends the list of accepting states and writes the arrow to the initial
+	 * state.
+	 */
+	private static void writeInitial(String initial, Writer out) throws IOException {
+		out.append(";\n").append("	node [shape = circle];\n").append(" qi -> ").append(initial).append(";\n");
+	}
+
+	private static void escape(String text, Writer out) throws IOException {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '<')
+				out.append("&lt;");
+			else if (c == '>')
+				out.append("&gt;");
+			else if (c == '&')
+				out.append("&amp;");
+			else
+				out.append(c);
+		}
+	}
+}
@@ -0,0 +1,243 @@
+package edu.udo.cs.ls1.fltl.reg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.udo.cs.ls1.fltl.Tuple;
+
+/***
+ * An implementation of Hopcrofts partition refinement algorithm for the
+ * minimization of deterministic finite automata. It runs in O(n·k·log n) for
+ * n states and k symbols, and works on int arrays only.
+ *
+ * @see <a href=
+ *      "https://en.wikipedia.org/wiki/DFA_minimization#Hopcroft's_algorithm">Wikipedia</a>
+ *
+ * @author Kai Sauerwald
+ *
+ */
+class Hopcroft {
+
+	private Hopcroft() {
+	}
+
+	/***
+	 * Computes the minimal automata for the language of fsa. The result
+	 * contains only states that are reachable and from which an accepting
+	 * state can be reached (except for the initial state, which is always
+	 * present). Every state of the result is a representative of its class of
+	 * equivalent states of fsa, the initial state represents its own class.
+	 *
+	 * @param fsa
+	 *            a deterministic automata with an initial state
+	 * @return a new minimal automata
+	 */
+	static <S, A> FiniteStateAutomata<S, A> minimize(ReadOnlyFiniteStateAutomata<S, A> fsa) {
+		assert (fsa.getInitialState() != null);
+
+		// number the reachable states in bfs order, the initial state gets 0
+		List<S> states = new ArrayList<>();
+		Map<S, Integer> ids = new HashMap<>();
+		List<A> symbols = new ArrayList<>();
+		Map<A, Integer> symbolIds = new HashMap<>();
+		states.add(fsa.getInitialState());
+		ids.put(fsa.getInitialState(), 0);
+		for (int i = 0; i < states.size(); i++) {
+			for (Tuple<A, S> t : fsa.getTransitions(states.get(i))) {
+				if (!ids.containsKey(t.second())) {
+					ids.put(t.second(), states.size());
+					states.add(t.second());
+				}
+				if (!symbolIds.containsKey(t.first())) {
+					symbolIds.put(t.first(), symbols.size());
+					symbols.add(t.first());
+				}
+			}
+		}
+
+		// the transition function of the completed automata, the additional
+		// state n is the sink
+		int n = states.size() + 1;
+		int sink = n - 1;
+		int k = symbols.size();
+		int[] delta = new int[n * k];
+		Arrays.fill(delta, sink);
+		for (int q = 0; q < sink; q++)
+			for (Tuple<A, S> t : fsa.getTransitions(states.get(q)))
+				delta[q * k + symbolIds.get(t.first())] = ids.get(t.second());
+
+		// the inverse transition function, the states p with delta(p,a) = q
+		// are preimage[preOffsets[a*n+q]..preOffsets[a*n+q+1]-1]
+		int[] preOffsets = new int[n * k + 1];
+		for (int p = 0; p < n; p++)
+			for (int a = 0; a < k; a++)
+				preOffsets[a * n + delta[p * k + a] + 1]++;
+		for (int i = 0; i < n * k; i++)
+			preOffsets[i + 1] += preOffsets[i];
+		int[] preimage = new int[n * k];
+		int[] fill = preOffsets.clone();
+		for (int p = 0; p < n; p++)
+			for (int a = 0; a < k; a++)
+				preimage[fill[a * n + delta[p * k + a]]++] = p;
+
+		Partition partition = new Partition(n);
+		for (int q = 0; q < sink; q++)
+			if (fsa.isAccepting(states.get(q)))
+				partition.mark(q);
+		partition.split();
+
+		// the worklist of splitter blocks
+		int[] worklist = new int[n];
+		boolean[] inWorklist = new boolean[n];
+		int wl = 0;
+		if (partition.blocks == 2) {
+			int smaller = partition.size(0) <= partition.size(1) ? 0 : 1;
+			worklist[wl++] = smaller;
+			inWorklist[smaller] = true;
+		}
+
+		int[] splitter = new int[n];
+		while (wl > 0) {
+			int c = worklist[--wl];
+			inWorklist[c] = false;
+
+			// copy the splitter, since it may be split by its own symbols
+			int size = partition.size(c);
+			System.arraycopy(partition.elements, partition.first[c], splitter, 0, size);
+
+			for (int a = 0; a < k; a++) {
+				for (int i = 0; i < size; i++) {
+					int q = splitter[i];
+					for (int j = preOffsets[a * n + q]; j < preOffsets[a * n + q + 1]; j++)
+						partition.mark(preimage[j]);
+				}
+				int before = partition.blocks;
+				partition.split();
+
+				// add the new blocks to the worklist
+				for (int b = before; b < partition.blocks; b++) {
+					int old = partition.origin[b];
+					if (inWorklist[old] || partition.size(b) <= partition.size(old)) {
+						worklist[wl++] = b;
+						inWorklist[b] = true;
+					} else {
+						worklist[wl++] = old;
+						inWorklist[old] = true;
+					}
+				}
+			}
+		}
+
+		// build the quotient automata, without the block of the sink
+		int dead = partition.block[sink];
+		int[] representative = new int[partition.blocks];
+		Arrays.fill(representative, -1);
+		representative[partition.block[0]] = 0;
+		for (int q = 1; q < sink; q++)
+			if (representative[partition.block[q]] == -1)
+				representative[partition.block[q]] = q;
+
+		FiniteStateAutomata<S, A> result = new FiniteStateAutomata<>(fsa.getInitialState());
+		if (partition.block[0] == dead)
+			return result;
+		for (int b = 0; b < partition.blocks; b++) {
+			int r = representative[b];
+			if (b == dead || r == -1)
+				continue;
+			result.addState(states.get(r));
+			if (fsa.isAccepting(states.get(r)))
+				result.setAccepting(states.get(r), true);
+			for (int a = 0; a < k; a++) {
+				int t = partition.block[delta[r * k + a]];
+				if (t != dead)
+					result.addTransition(states.get(r), symbols.get(a), states.get(representative[t]));
+			}
+		}
+		return result;
+	}
+
+	/***
+	 * A partition of 0..n-1 into blocks. The elements of block b are
+	 * elements[first[b]..end[b]-1]. Elements can be marked, the marked
+	 * elements of a block are moved to its front.
+	 */
+	private static class Partition {
+		final int[] elements;
+		final int[] location;
+		final int[] block;
+		final int[] first;
+		final int[] end;
+		final int[] marked;
+		/***
+		 * origin[b] is the block that b was split from
+		 */
+		final int[] origin;
+		int blocks = 1;
+
+		/***
+		 * the blocks with marked elements
+		 */
+		final int[] touched;
+		int touchedSize = 0;
+
+		Partition(int n) {
+			elements = new int[n];
+			location = new int[n];
+			block = new int[n];
+			first = new int[n];
+			end = new int[n];
+			marked = new int[n];
+			origin = new int[n];
+			touched = new int[n];
+			for (int i = 0; i < n; i++) {
+				elements[i] = i;
+				location[i] = i;
+			}
+			end[0] = n;
+		}
+
+		int size(int b) {
+			return end[b] - first[b];
+		}
+
+		void mark(int e) {
+			int b = block[e];
+			int i = location[e];
+			int j = first[b] + marked[b];
+			if (i < j)
+				return; // already marked
+			// swap e to the marked part
+			int other = elements[j];
+			elements[j] = e;
+			location[e] = j;
+			elements[i] = other;
+			location[other] = i;
+			if (marked[b]++ == 0)
+				touched[touchedSize++] = b;
+		}
+
+		/***
+		 * Splits every touched block into its marked and unmarked part. The
+		 * marked part becomes a new block, unless it is the whole block.
+		 */
+		void split() {
+			while (touchedSize > 0) {
+				int b = touched[--touchedSize];
+				int m = first[b] + marked[b];
+				marked[b] = 0;
+				if (m == end[b])
+					continue;
+				int nb = blocks++;
+				first[nb] = first[b];
+				end[nb] = m;
+				origin[nb] = b;
+				first[b] = m;
+				for (int i = first[nb]; i < end[nb]; i++)
+					block[elements[i]] = nb;
+			}
+		}
+	}
+}
@@ -0,0 +1,253 @@
+package edu.udo.cs.ls1.fltl.reg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+
+/***
+ * A frozen, int-indexed form of a deterministic {@link FiniteStateAutomata}
+ * over characters. The states are numbered 0..n-1 (0 is the initial state),
+ * the characters are mapped to dense symbol classes, and the transitions are
+ * stored in one int array. Running a word through this automata does not
+ * allocate anything.
+ *
+ * Symbol class 0 is reserved for all characters that do not occur in the
+ * alphabet. Characters that behave the same in every state share one class.
+ *
+ * @author Kai Sauerwald
+ *
+ * @param <S>
+ *            The type of the states of the original automata
+ */
+public class IntDfa<S> {
+
+	/***
+	 * The result of {@link #step(int, int)} if there is no transition.
+	 */
+	public static final int DEAD = -1;
+
+	private final List<S> states;
+	private final Map<S, Integer> ids;
+
+	/***
+	 * the smallest character that has a class != 0
+	 */
+	private final char low;
+
+	/***
+	 * classOf[c - low] is the symbol class of c
+	 */
+	private final int[] classOf;
+
+	private final int classes;
+
+	/***
+	 * delta[q * classes + c] is the successor of q under the class c, or
+	 * {@link #DEAD}
+	 */
+	private final int[] delta;
+
+	private final BitSet accepting;
+
+	private IntDfa(List<S> states, Map<S, Integer> ids, char low, int[] classOf, int classes, int[] delta,
+			BitSet accepting) {
+		this.states = states;
+		this.ids = ids;
+		this.low = low;
+		this.classOf = classOf;
+		this.classes = classes;
+		this.delta = delta;
+		this.accepting = accepting;
+	}
+
+	/***
+	 * Compiles the given automata. Later changes to fsa are not reflected by
+	 * the result.
+	 *
+	 * @param fsa
+	 *            a deterministic automata with an initial state
+	 * @return the compiled automata
+	 */
+	public static <S> IntDfa<S> compile(ReadOnlyFiniteStateAutomata<S, Character> fsa) {
+		assert (fsa.getInitialState() != null);
+
+		// number the states, the initial state gets 0
+		List<S> states = new ArrayList<>(fsa.getStates().size());
+		Map<S, Integer> ids = new HashMap<>(fsa.getStates().size() * 2);
+		states.add(fsa.getInitialState());
+		ids.put(fsa.getInitialState(), 0);
+		for (S q : fsa.getStates()) {
+			if (!ids.containsKey(q)) {
+				ids.put(q, states.size());
+				states.add(q);
+			}
+		}
+		int n = states.size();
+
+		// compute for every character its column, that is the successor of
+		// every state
+		TreeSet<Character> alphabet = new TreeSet<>();
+		fsa.forEachTransition((p, c, q) -> alphabet.add(c));
+
+		if (alphabet.isEmpty()) {
+			int[] delta = new int[n];
+			Arrays.fill(delta, DEAD);
+			return new IntDfa<>(states, ids, (char) 0, new int[0], 1, delta, acceptingOf(fsa, ids));
+		}
+
+		char low = alphabet.first();
+		char high = alphabet.last();
+		Map<Character, int[]> columns = new HashMap<>(alphabet.size() * 2);
+		for (Character c : alphabet) {
+			int[] column = new int[n];
+			Arrays.fill(column, DEAD);
+			columns.put(c, column);
+		}
+		fsa.forEachTransition((p, c, q) -> columns.get(c)[ids.get(p)] = ids.get(q));
+
+		// characters with equal columns share one class
+		Map<ColumnKey, Integer> classIds = new HashMap<>();
+		List<int[]> classColumns = new ArrayList<>();
+		int[] dead = new int[n];
+		Arrays.fill(dead, DEAD);
+		classIds.put(new ColumnKey(dead), 0);
+		classColumns.add(dead);
+
+		int[] classOf = new int[high - low + 1];
+		for (Character c : alphabet) {
+			int[] column = columns.get(c);
+			Integer cls = classIds.get(new ColumnKey(column));
+			if (cls == null) {
+				cls = classColumns.size();
+				classIds.put(new ColumnKey(column), cls);
+				classColumns.add(column);
+			}
+			classOf[c - low] = cls;
+		}
+
+		int classes = classColumns.size();
+		int[] delta = new int[n * classes];
+		for (int c = 0; c < classes; c++) {
+			int[] column = classColumns.get(c);
+			for (int q = 0; q < n; q++)
+				delta[q * classes + c] = column[q];
+		}
+
+		return new IntDfa<>(states, ids, low, classOf, classes, delta, acceptingOf(fsa, ids));
+	}
+
+	private static <S> BitSet acceptingOf(ReadOnlyFiniteStateAutomata<S, Character> fsa, Map<S, Integer> ids) {
+		BitSet accepting = new BitSet(ids.size());
+		for (S q : fsa.getAcceptingStates()) {
+			Integer id = ids.get(q);
+			if (id != null)
+				accepting.set(id);
+		}
+		return accepting;
+	}
+
+	/***
+	 * A wrapper to use columns as keys of a hash map.
+	 */
+	private static final class ColumnKey {
+		final int[] column;
+		final int hash;
+
+		ColumnKey(int[] column) {
+			this.column = column;
+			this.hash = Arrays.hashCode(column);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof ColumnKey && Arrays.equals(column, ((ColumnKey) obj).column);
+		}
+	}
+
+	/***
+	 * Gives the symbol class of a character.
+	 *
+	 * @param c
+	 * @return the class of c, 0 if c is not part of the alphabet
+	 */
+	public int symbolClass(char c) {
+		int i = c - low;
+		if (i < 0 || i >= classOf.length)
+			return 0;
+		return classOf[i];
+	}
+
+	/***
+	 * Performs one step of the automata
+	 *
+	 * @param state
+	 *            a state id
+	 * @param symbolClass
+	 *            a symbol class, see {@link #symbolClass(char)}
+	 * @return the id of the next state or {@link #DEAD}
+	 */
+	public int step(int state, int symbolClass) {
+		return delta[state * classes + symbolClass];
+	}
+
+	/***
+	 * Tests if the automata accepts the given word.
+	 *
+	 * @param word
+	 * @return true, if the run on word ends in an accepting state.
+	 */
+	public boolean accepts(CharSequence word) {
+		int q = 0;
+		for (int i = 0; i < word.length(); i++) {
+			q = delta[q * classes + symbolClass(word.charAt(i))];
+			if (q == DEAD)
+				return false;
+		}
+		return accepting.get(q);
+	}
+
+	public boolean isAccepting(int state) {
+		return accepting.get(state);
+	}
+
+	public int getInitialState() {
+		return 0;
+	}
+
+	public int getNumberOfStates() {
+		return states.size();
+	}
+
+	public int getNumberOfSymbolClasses() {
+		return classes;
+	}
+
+	/***
+	 * @param id
+	 * @return the state of the original automata with the given id
+	 */
+	public S getState(int id) {
+		return states.get(id);
+	}
+
+	/***
+	 * @param state
+	 *            a state of the original automata
+	 * @return the id of state, or {@link #DEAD} if it is not part of the
+	 *         automata
+	 */
+	public int getId(S state) {
+		Integer id = ids.get(state);
+		return id == null ? DEAD : id;
+	}
+}
@@ -0,0 +1,241 @@
+package edu.udo.cs.ls1.fltl.reg;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.udo.cs.ls1.fltl.Tuple;
+
+/***
+ * Decides the membership problem for a nondeterministic automata by an
+ * on-the-fly subset construction. A state of the deterministic automata is
+ * built only when a run reaches it, and is kept in a cache of bounded size
+ * with least recently used eviction. So the memory stays bounded even if the
+ * full deterministic automata would be exponentially large. The states only
+ * refer to their successors by id, so an evicted state is not kept alive by
+ * the states that lead to it.
+ *
+ * An instance is not thread-safe.
+ *
+ * @author Kai Sauerwald
+ *
+ * @param <S>
+ *            The type of the states of the nondeterministic automata
+ * @param <A>
+ *            The type of the symbols
+ */
+public class LazyDfaMatcher<S, A> {
+
+	/***
+	 * succ.get(q).get(a) are the ids of the states reached from q under a
+	 */
+	private final List<Map<A, int[]>> succ;
+	private final BitSet accepting;
+	private final BitSet initial;
+
+	private final int capacity;
+	private final LinkedHashMap<DfaState, DfaState> cache;
+
+	/***
+	 * the cached states by their ids
+	 */
+	private final HashMap<Long, DfaState> byId = new HashMap<>();
+	private long nextId = 0;
+
+	private long computed = 0;
+	private long evictions = 0;
+
+	/***
+	 * A state of the deterministic automata, that is a set of states of the
+	 * nondeterministic automata.
+	 */
+	private final class DfaState {
+		final BitSet set;
+		final int hash;
+		final boolean accepting;
+		long id = -1;
+
+		/***
+		 * the ids of the known successors. They may be evicted, then they are
+		 * computed again.
+		 */
+		final HashMap<A, Long> next = new HashMap<>(4);
+		boolean evicted = false;
+
+		DfaState(BitSet set) {
+			this.set = set;
+			this.hash = set.hashCode();
+			this.accepting = set.intersects(LazyDfaMatcher.this.accepting);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof LazyDfaMatcher.DfaState))
+				return false;
+			@SuppressWarnings("unchecked")
+			DfaState other = (DfaState) obj;
+			return hash == other.hash && set.equals(other.set);
+		}
+	}
+
+	/***
+	 *
+	 * @param nfa
+	 *            the automata, later changes are not reflected by the matcher
+	 * @param capacity
+	 *            the maximal number of cached deterministic states, at least
+	 *            1
+	 */
+	public LazyDfaMatcher(NondeterministicFiniteStateAutomata<S, A> nfa, int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("capacity has to be at least 1");
+		this.capacity = capacity;
+
+		// number the states
+		List<S> states = new ArrayList<>(nfa.getStates());
+		Map<S, Integer> ids = new HashMap<>(states.size() * 2);
+		for (int i = 0; i < states.size(); i++)
+			ids.put(states.get(i), i);
+
+		succ = new ArrayList<>(states.size());
+		accepting = new BitSet(states.size());
+		initial = new BitSet(states.size());
+		for (int q = 0; q < states.size(); q++) {
+			Map<A, List<Integer>> targets = new HashMap<>();
+			for (Tuple<A, S> t : nfa.getTransitions(states.get(q)))
+				targets.computeIfAbsent(t.first(), a -> new ArrayList<>(2)).add(ids.get(t.second()));
+			Map<A, int[]> m = new HashMap<>(targets.size() * 2);
+			targets.forEach((a, l) -> m.put(a, l.stream().mapToInt(Integer::intValue).toArray()));
+			succ.add(m);
+			if (nfa.isAccepting(states.get(q)))
+				accepting.set(q);
+		}
+		for (S q : nfa.getInitialStates())
+			initial.set(ids.get(q));
+
+		cache = new LinkedHashMap<DfaState, DfaState>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<DfaState, DfaState> eldest) {
+				if (size() <= LazyDfaMatcher.this.capacity)
+					return false;
+				DfaState d = eldest.getValue();
+				d.evicted = true;
+				d.next.clear();
+				byId.remove(d.id);
+				evictions++;
+				return true;
+			}
+		};
+	}
+
+	/***
+	 * Gives the cached state for the set, or caches a new one.
+	 */
+	private DfaState intern(BitSet set) {
+		DfaState d = new DfaState(set);
+		DfaState cached = cache.get(d);
+		if (cached != null)
+			return cached;
+		computed++;
+		d.id = nextId++;
+		byId.put(d.id, d);
+		cache.put(d, d);
+		return d;
+	}
+
+	/***
+	 * Performs one step of the deterministic automata.
+	 */
+	private DfaState step(DfaState d, A symbol) {
+		Long id = d.next.get(symbol);
+		DfaState t = id == null ? null : byId.get(id);
+		if (t != null) {
+			// refresh the position in the lru order
+			cache.get(t);
+			return t;
+		}
+
+		BitSet set = new BitSet();
+		for (int q = d.set.nextSetBit(0); q >= 0; q = d.set.nextSetBit(q + 1)) {
+			int[] targets = succ.get(q).get(symbol);
+			if (targets != null)
+				for (int p : targets)
+					set.set(p);
+		}
+		t = intern(set);
+		if (!d.evicted)
+			d.next.put(symbol, t.id);
+		return t;
+	}
+
+	/***
+	 * Tests if the automata accepts the given word.
+	 *
+	 * @param word
+	 * @return true, if there is a run on word that ends in an accepting state
+	 */
+	public boolean accepts(Iterable<A> word) {
+		DfaState d = intern((BitSet) initial.clone());
+		for (A a : word) {
+			d = step(d, a);
+			if (d.set.isEmpty())
+				return false;
+		}
+		return d.accepting;
+	}
+
+	/***
+	 * Tests if the automata accepts the given word. This may only be used if
+	 * the symbols are characters.
+	 *
+	 * @param word
+	 * @return true, if there is a run on word that ends in an accepting state
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean accepts(CharSequence word) {
+		DfaState d = intern((BitSet) initial.clone());
+		for (int i = 0; i < word.length(); i++) {
+			d = step(d, (A) Character.valueOf(word.charAt(i)));
+			if (d.set.isEmpty())
+				return false;
+		}
+		return d.accepting;
+	}
+
+	/***
+	 *
+	 * @return the number of deterministic states in the cache
+	 */
+	public int getCacheSize() {
+		return cache.size();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/***
+	 *
+	 * @return how often a deterministic state was built, including states
+	 *         that were built again after their eviction
+	 */
+	public long getNumberOfComputedStates() {
+		return computed;
+	}
+
+	public long getNumberOfEvictions() {
+		return evictions;
+	}
+}
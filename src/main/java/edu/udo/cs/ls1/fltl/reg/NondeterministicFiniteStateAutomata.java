@@ -0,0 +1,186 @@
+package edu.udo.cs.ls1.fltl.reg;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.State;
+import dk.brics.automaton.Transition;
+import edu.udo.cs.ls1.fltl.Tuple;
+
+/***
+ * Represents a nondeterministic finite state automata (without
+ * epsilon-transitions). It may have several initial states, and several
+ * transitions for the same state and symbol.
+ *
+ * @author Kai Sauerwald
+ *
+ * @param <S>
+ *            The type of the states
+ * @param <A>
+ *            The type of the symbols
+ */
+public class NondeterministicFiniteStateAutomata<S, A> {
+	private Set<S> states = new HashSet<>(3);
+	private Set<S> accepting = new HashSet<>(3);
+	private Set<S> initial = new HashSet<>(1);
+
+	/***
+	 * The outgoing transitions of a state, as (symbol, target) tuples.
+	 */
+	private Map<S, Set<Tuple<A, S>>> transitions = new HashMap<>(3);
+	private int numberOfTransitions = 0;
+
+	/***
+	 * Creates a new automata without states.
+	 */
+	public NondeterministicFiniteStateAutomata() {
+	}
+
+	/***
+	 * Translates a brics automata, which may be nondeterministic. The
+	 * transitions are labeled with the ranges of
+	 * {@link CharRange#partition(Automaton)}, so a transition range like the
+	 * one of . becomes a few transitions and not one per character. A word is
+	 * read by mapping every character to its range with
+	 * {@link CharRange#of(List, char)}.
+	 *
+	 * @param aut
+	 * @return the automata
+	 */
+	public static NondeterministicFiniteStateAutomata<State, CharRange> fromAutomaton(Automaton aut) {
+		List<CharRange> classes = CharRange.partition(aut);
+		NondeterministicFiniteStateAutomata<State, CharRange> result = new NondeterministicFiniteStateAutomata<>();
+		result.addInitialState(aut.getInitialState());
+
+		for (State s : aut.getStates()) {
+			result.addState(s);
+			if (s.isAccept())
+				result.setAccepting(s, true);
+			for (Transition t : s.getTransitions())
+				for (CharRange r : CharRange.covering(classes, t.getMin(), t.getMax()))
+					result.addTransition(s, r, t.getDest());
+		}
+
+		return result;
+	}
+
+	/***
+	 * Translates a regular expression in the syntax of brics, without making
+	 * it deterministic. The automata has one state per character (class) of
+	 * the expression plus the initial state 0, see {@link Glushkov}.
+	 *
+	 * @param regexp
+	 * @return the automata
+	 * @throws IllegalArgumentException
+	 *             if regexp is not valid or uses an operator other than |,
+	 *             *, +, ?, {n,m} and character classes
+	 */
+	public static NondeterministicFiniteStateAutomata<Integer, Character> fromRegExp(String regexp) {
+		return Glushkov.construct(regexp);
+	}
+
+	public void addInitialState(S state) {
+		assert (state != null);
+		states.add(state);
+		initial.add(state);
+	}
+
+	public Set<S> getInitialStates() {
+		return initial;
+	}
+
+	public void addState(S state) {
+		assert (state != null);
+		states.add(state);
+	}
+
+	public Set<S> getStates() {
+		return states;
+	}
+
+	/***
+	 * Adds a new transition;
+	 *
+	 * @param src
+	 *            the source node
+	 * @param sign
+	 *            the sign
+	 * @param tgt
+	 *            the target node
+	 */
+	public void addTransition(S src, A sign, S tgt) {
+		assert (src != null);
+		assert (tgt != null);
+		assert (sign != null);
+		states.add(src);
+		states.add(tgt);
+		if (transitions.computeIfAbsent(src, q -> new HashSet<>(3)).add(new Tuple<>(sign, tgt)))
+			numberOfTransitions++;
+	}
+
+	/***
+	 *
+	 * @param state
+	 * @return a read-only view on the outgoing transitions of state, as
+	 *         (symbol, target) tuples
+	 */
+	public Set<Tuple<A, S>> getTransitions(S state) {
+		Set<Tuple<A, S>> out = transitions.get(state);
+		if (out == null)
+			return Collections.emptySet();
+		return Collections.unmodifiableSet(out);
+	}
+
+	public int getNumberOfTransitions() {
+		return numberOfTransitions;
+	}
+
+	/***
+	 *
+	 * @param q
+	 * @param symbol
+	 * @return all states that can be reached from q by reading symbol
+	 */
+	public Set<S> step(S q, A symbol) {
+		Set<S> result = new HashSet<>();
+		for (Tuple<A, S> t : getTransitions(q))
+			if (t.first().equals(symbol))
+				result.add(t.second());
+		return result;
+	}
+
+	public Set<S> getAcceptingStates() {
+		return accepting;
+	}
+
+	/***
+	 *
+	 * @param state
+	 * @return false if state is not part of the automata. true otherwise.
+	 */
+	public boolean setAccepting(S state, boolean accepting) {
+		if (!states.contains(state))
+			return false;
+
+		if (accepting)
+			this.accepting.add(state);
+		else
+			this.accepting.remove(state);
+
+		return true;
+	}
+
+	/***
+	 *
+	 * @param state
+	 * @return true if state is an final state. false otherwise.
+	 */
+	public boolean isAccepting(S state) {
+		return accepting.contains(state);
+	}
+}
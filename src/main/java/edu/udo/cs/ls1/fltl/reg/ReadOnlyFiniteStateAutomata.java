@@ -0,0 +1,139 @@
+package edu.udo.cs.ls1.fltl.reg;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import edu.udo.cs.ls1.fltl.Tuple;
+import edu.udo.cs.ls1.fltl.graph.Graph;
+import edu.udo.cs.ls1.fltl.metrics.Metrics;
+import edu.udo.cs.ls1.fltl.metrics.Metrics.Timer;
+
+/***
+ * The read-only part of a (deterministic) finite state automata. It is
+ * implemented by {@link FiniteStateAutomata}, and by
+ * {@link FiniteStateAutomataView}, which shows a part of one without copying
+ * it.
+ *
+ * @author Kai Sauerwald
+ *
+ * @param <S>
+ *            The type of the states
+ * @param <A>
+ *            The type of the symbols
+ */
+public interface ReadOnlyFiniteStateAutomata<S, A> {
+
+	/***
+	 * Receives the transitions of {@link #forEachTransition(TransitionConsumer)}.
+	 */
+	@FunctionalInterface
+	public interface TransitionConsumer<S, A> {
+		public void accept(S src, A sign, S tgt);
+	}
+
+	/***
+	 * Performce one step of the Automata.
+	 *
+	 * @param q
+	 * @param symbol
+	 * @return the next state, or null if there is no transition
+	 */
+	public S step(S q, A symbol);
+
+	public S getInitialState();
+
+	public Set<S> getStates();
+
+	/***
+	 * Gives the outgoing transitions of a state.
+	 *
+	 * @param state
+	 * @return the transitions as (symbol, target) tuples
+	 */
+	public Set<Tuple<A, S>> getTransitions(S state);
+
+	/***
+	 * Gives the incoming transitions of a state.
+	 *
+	 * @param state
+	 * @return the transitions as (symbol, source) tuples
+	 */
+	public Set<Tuple<A, S>> getIncomingTransitions(S state);
+
+	/***
+	 * Gives all transitions of the automata.
+	 *
+	 * @return a read-only set of ((source, symbol), target) entries
+	 */
+	public Set<Map.Entry<Tuple<S, A>, S>> getTransitions();
+
+	/***
+	 * Passes every transition to action, without allocating an entry for it
+	 * as {@link #getTransitions()} does.
+	 *
+	 * @param action
+	 */
+	public void forEachTransition(TransitionConsumer<? super S, ? super A> action);
+
+	public Set<S> getAcceptingStates();
+
+	/***
+	 *
+	 * @param state
+	 * @return true if state is an final state. false otherwise.
+	 */
+	public boolean isAccepting(S state);
+
+	/***
+	 * Computes the minimal automata with the same language, by Hopcrofts
+	 * algorithm in O(n·k·log n). Unreachable states and states from which no
+	 * accepting state can be reached are dropped. The states of the result
+	 * are states of this automata, one for each class of equivalent states.
+	 *
+	 * @return a new minimal automata
+	 */
+	public default FiniteStateAutomata<S, A> minimize() {
+		long start = Metrics.start();
+		FiniteStateAutomata<S, A> result = Hopcroft.minimize(this);
+		Metrics.stop(Timer.MINIMIZATION, start);
+		return result;
+	}
+
+	/***
+	 * Gives a read-only view on the transition graph of this automata. There
+	 * is an edge (p,q) iff there is a transition from p to q. The view
+	 * reflects later changes of the automata. Use
+	 * {@link edu.udo.cs.ls1.fltl.graph.CsrGraph#fromAutomata(ReadOnlyFiniteStateAutomata)}
+	 * for a frozen copy that is faster to traverse.
+	 *
+	 * @return the graph
+	 */
+	public default Graph<S> asGraph() {
+		return new Graph<S>() {
+			@Override
+			public Set<S> getVertices() {
+				return Collections.unmodifiableSet(getStates());
+			}
+
+			@Override
+			public Set<Tuple<S, S>> getEdges() {
+				HashSet<Tuple<S, S>> edges = new HashSet<>();
+				for (S q : getStates())
+					for (Tuple<A, S> t : getTransitions(q))
+						edges.add(new Tuple<>(q, t.second()));
+				return edges;
+			}
+
+			@Override
+			public Set<S> getNeighbors(S vertex) {
+				Set<Tuple<A, S>> out = getTransitions(vertex);
+				HashSet<S> result = new HashSet<>(out.size() * 2);
+				for (Tuple<A, S> t : out)
+					result.add(t.second());
+				return result;
+			}
+		};
+	}
+}
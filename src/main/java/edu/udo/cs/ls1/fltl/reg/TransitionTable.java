@@ -0,0 +1,203 @@
+package edu.udo.cs.ls1.fltl.reg;
+
+import java.util.Arrays;
+
+/***
+ * A hash table from packed (state id, symbol key) pairs to target state ids.
+ * It uses open addressing with linear probing on two primitive arrays, so a
+ * lookup allocates nothing and an entry takes 12 bytes (plus the free slots).
+ *
+ * The key of a transition is (stateId << 32 | symbolKey), see
+ * {@link #pack(int, int)}. Keys are never negative, -1 marks a free slot.
+ *
+ * @author Kai Sauerwald
+ *
+ */
+final class TransitionTable implements Cloneable {
+
+	/***
+	 * The result of {@link #get(long)}, {@link #put(long, int)} and
+	 * {@link #remove(long)} if there is no entry for the key.
+	 */
+	static final int NONE = -1;
+
+	private static final long FREE = -1L;
+
+	private long[] keys;
+	private int[] values;
+	private int size = 0;
+
+	TransitionTable() {
+		this(8);
+	}
+
+	/***
+	 * @param capacity
+	 *            the number of slots, a power of two
+	 */
+	private TransitionTable(int capacity) {
+		keys = new long[capacity];
+		values = new int[capacity];
+		Arrays.fill(keys, FREE);
+	}
+
+	/***
+	 * Packs a state id and a symbol key into one key.
+	 *
+	 * @param state
+	 *            a non negative state id
+	 * @param symbol
+	 *            a non negative symbol key, for characters this is the char
+	 *            value
+	 * @return the key
+	 */
+	static long pack(int state, int symbol) {
+		return ((long) state << 32) | (symbol & 0xFFFFFFFFL);
+	}
+
+	static int stateOf(long key) {
+		return (int) (key >>> 32);
+	}
+
+	static int symbolOf(long key) {
+		return (int) key;
+	}
+
+	private int slot(long key) {
+		// the finalizer of MurmurHash3, spreads the bits of state and symbol
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		return (int) key & (keys.length - 1);
+	}
+
+	/***
+	 *
+	 * @param key
+	 * @return the target for key, or {@link #NONE}
+	 */
+	int get(long key) {
+		int mask = keys.length - 1;
+		for (int i = slot(key);; i = (i + 1) & mask) {
+			long k = keys[i];
+			if (k == key)
+				return values[i];
+			if (k == FREE)
+				return NONE;
+		}
+	}
+
+	/***
+	 *
+	 * @param key
+	 * @param value
+	 *            a non negative target id
+	 * @return the old target for key, or {@link #NONE}
+	 */
+	int put(long key, int value) {
+		int mask = keys.length - 1;
+		for (int i = slot(key);; i = (i + 1) & mask) {
+			long k = keys[i];
+			if (k == key) {
+				int old = values[i];
+				values[i] = value;
+				return old;
+			}
+			if (k == FREE) {
+				keys[i] = key;
+				values[i] = value;
+				// keep the load factor below 1/2
+				if (++size * 2 > keys.length)
+					resize(keys.length * 2);
+				return NONE;
+			}
+		}
+	}
+
+	/***
+	 *
+	 * @param key
+	 * @return the removed target for key, or {@link #NONE}
+	 */
+	int remove(long key) {
+		int mask = keys.length - 1;
+		int i = slot(key);
+		while (keys[i] != key) {
+			if (keys[i] == FREE)
+				return NONE;
+			i = (i + 1) & mask;
+		}
+		int old = values[i];
+		size--;
+
+		// shift the following entries back, so no probe sequence is broken
+		int free = i;
+		for (int j = (i + 1) & mask; keys[j] != FREE; j = (j + 1) & mask) {
+			int home = slot(keys[j]);
+			// move j to free, if its home slot is not in (free, j]
+			if (((j - home) & mask) >= ((j - free) & mask)) {
+				keys[free] = keys[j];
+				values[free] = values[j];
+				free = j;
+			}
+		}
+		keys[free] = FREE;
+		return old;
+	}
+
+	private void resize(int capacity) {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new long[capacity];
+		values = new int[capacity];
+		Arrays.fill(keys, FREE);
+		int mask = capacity - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldKeys[j] == FREE)
+				continue;
+			int i = slot(oldKeys[j]);
+			while (keys[i] != FREE)
+				i = (i + 1) & mask;
+			keys[i] = oldKeys[j];
+			values[i] = oldValues[j];
+		}
+	}
+
+	int size() {
+		return size;
+	}
+
+	/***
+	 * The entries can be iterated by the slots 0..capacity()-1, skipping the
+	 * free ones.
+	 *
+	 * @return the number of slots
+	 */
+	int capacity() {
+		return keys.length;
+	}
+
+	boolean isUsed(int slot) {
+		return keys[slot] != FREE;
+	}
+
+	long keyAt(int slot) {
+		return keys[slot];
+	}
+
+	int valueAt(int slot) {
+		return values[slot];
+	}
+
+	@Override
+	protected TransitionTable clone() {
+		try {
+			TransitionTable copy = (TransitionTable) super.clone();
+			copy.keys = keys.clone();
+			copy.values = values.clone();
+			return copy;
+		} catch (CloneNotSupportedException e) {
+			throw new AssertionError(e);
+		}
+	}
+}
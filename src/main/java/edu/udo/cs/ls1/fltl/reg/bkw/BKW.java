@@ -1,22 +1,40 @@
 package edu.udo.cs.ls1.fltl.reg.bkw;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import dk.brics.automaton.Automaton;
 import dk.brics.automaton.State;
 import edu.udo.cs.ls1.fltl.Tuple;
+import edu.udo.cs.ls1.fltl.metrics.Metrics;
+import edu.udo.cs.ls1.fltl.metrics.Metrics.Counter;
+import edu.udo.cs.ls1.fltl.metrics.Metrics.Timer;
+import edu.udo.cs.ls1.fltl.reg.CharRange;
+import edu.udo.cs.ls1.fltl.graph.CsrGraph;
 import edu.udo.cs.ls1.fltl.graph.GraphHelper;
+import edu.udo.cs.ls1.fltl.graph.StronglyConnectedComponents;
 import edu.udo.cs.ls1.fltl.reg.FiniteStateAutomata;
+import edu.udo.cs.ls1.fltl.reg.FiniteStateAutomataView;
+import edu.udo.cs.ls1.fltl.reg.ReadOnlyFiniteStateAutomata;
+import edu.udo.cs.ls1.fltl.reg.bkw.NotOneUnambiguousException.Reason;
 
 /**
  * This class provides an implementation of the Algorithm from Brüggemann-Klein
@@ -28,10 +46,110 @@ import edu.udo.cs.ls1.fltl.reg.FiniteStateAutomata;
  * Simplifying XML Schema: Effortless Handling of Nondeterministic Regular
  * Expressions, Bex and Gelade and Martens and Neven
  * 
+ * The symbols may be of any type. A symbol can also stand for a set of
+ * characters, like the {@link CharRange}s that are used for brics automata,
+ * then the symbols have to be disjoint.
+ * 
  * @author Kai Sauerwald
  *
+ * @param <S>
+ *            The type of the states
+ * @param <A>
+ *            The type of the symbols
  */
-public class BKW<S> {
+public class BKW<S, A> {
+
+	/***
+	 * If true, every sub-automata is minimized before the recursion continues
+	 * on it.
+	 */
+	private final boolean minimizeSubAutomata;
+
+	/***
+	 * The pool for the parallel evaluation of independent sub-problems, or
+	 * null if everything is computed sequentially.
+	 */
+	private final ForkJoinPool pool;
+
+	/***
+	 * the depth of the recursion step that runs on a thread, for the metrics
+	 */
+	private static final ThreadLocal<int[]> depth = ThreadLocal.withInitial(() -> new int[1]);
+
+	/***
+	 * Sub-problems of automata with less states are computed sequentially.
+	 */
+	private final int parallelThreshold;
+
+	/***
+	 * The already solved sub-problems, see {@link Fingerprint}.
+	 */
+	private final Map<Fingerprint, Dre> memo = new ConcurrentHashMap<>();
+
+	/***
+	 * The sub-problems that are known to be one-unambiguous, see
+	 * {@link #isOneUnambiguous(ReadOnlyFiniteStateAutomata)}.
+	 */
+	private final Set<Fingerprint> checked = ConcurrentHashMap.newKeySet();
+
+	/***
+	 * Builds the results, so equal sub-results are shared.
+	 */
+	private final DreFactory dres = new DreFactory();
+
+	/***
+	 * The ids of the states, used for the fingerprints. A state keeps its id
+	 * for the lifetime of this instance.
+	 */
+	private final Map<S, Integer> stateIds = new ConcurrentHashMap<>();
+	private final AtomicInteger nextStateId = new AtomicInteger();
+
+	/***
+	 * The ids of the symbols, used for the fingerprints.
+	 */
+	private final Map<A, Integer> symbolIds = new ConcurrentHashMap<>();
+	private final AtomicInteger nextSymbolId = new AtomicInteger();
+
+	/***
+	 * Creates a new instance, that computes everything sequentially and does
+	 * not minimize the sub-automata of the recursion.
+	 */
+	public BKW() {
+		this(false);
+	}
+
+	/***
+	 * Creates a new instance, that computes everything sequentially.
+	 * 
+	 * @param minimizeSubAutomata
+	 *            if true, every sub-automata of the recursion is minimized
+	 *            before the recursion continues on it. This keeps the
+	 *            recursion tree small.
+	 */
+	public BKW(boolean minimizeSubAutomata) {
+		this(minimizeSubAutomata, null, 0);
+	}
+
+	/***
+	 * Creates a new instance, that computes the independent sub-problems of
+	 * the recursion in parallel. The result is the same as the sequential
+	 * one.
+	 * 
+	 * @param minimizeSubAutomata
+	 *            if true, every sub-automata of the recursion is minimized
+	 *            before the recursion continues on it.
+	 * @param pool
+	 *            the pool for the sub-problems, or null for sequential
+	 *            computation
+	 * @param parallelThreshold
+	 *            the sub-problems of automata with less states are computed
+	 *            sequentially
+	 */
+	public BKW(boolean minimizeSubAutomata, ForkJoinPool pool, int parallelThreshold) {
+		this.minimizeSubAutomata = minimizeSubAutomata;
+		this.pool = pool;
+		this.parallelThreshold = parallelThreshold;
+	}
 
 	public static void main(String[] args) {
 
@@ -52,32 +170,19 @@ public class BKW<S> {
 		HashSet<Character> sigma = new HashSet<>();
 		sigma.add('a');
 		sigma.add('b');
-		System.out.println(new BKW<String>().computeBKW(fsa, sigma));
+		System.out.println(new BKW<String, Character>().computeBKW(fsa, sigma));
 	}
 
 	/***
-	 * translates from one representation to another
+	 * translates from one representation to another. The transitions are
+	 * labelled with the classes of characters that aut distinguishes, so
+	 * ranges like . or [^x] stay one transition.
 	 * 
 	 * @param aut
 	 * @return
 	 */
-	private static FiniteStateAutomata<State, Character> minimalDKAutomata2FSA(Automaton aut) {
-		FiniteStateAutomata<State, Character> result = new FiniteStateAutomata<State, Character>(aut.getInitialState());
-
-		aut.getStates().forEach(s -> {
-			result.addState(s);
-			s.getTransitions().forEach(t -> {
-				for (char c = t.getMin(); c <= t.getMax(); c++) {
-					result.addTransition(s, c, t.getDest());
-				}
-			});
-		});
-
-		aut.getAcceptStates().forEach(s -> {
-			result.setAccepting(s, true);
-		});
-
-		return result;
+	private static FiniteStateAutomata<State, CharRange> minimalDKAutomata2FSA(Automaton aut) {
+		return CharRange.fromAutomaton(aut);
 	}
 
 	/***
@@ -86,21 +191,86 @@ public class BKW<S> {
 	 * 
 	 * @param automata
 	 * @return a deterministic regular expression (as String) with the same
-	 *         language as the automata. If there is no equivalent deterministic
-	 *         regular expression, it returns null.
+	 *         language as the automata.
+	 * @throws NotOneUnambiguousException
+	 *             if there is no equivalent deterministic regular expression
 	 */
 	public static String computeBKW(Automaton automata) {
+		return computeDre(automata).toString();
+	}
+
+	/***
+	 * This method computes for a given deterministic finite automata a
+	 * deterministic regular expression.
+	 * 
+	 * @param automata
+	 * @return a deterministic regular expression with the same language as
+	 *         the automata. Use {@link Dre#writeTo(Appendable)} to write large
+	 *         expressions.
+	 * @throws NotOneUnambiguousException
+	 *             if there is no equivalent deterministic regular expression
+	 */
+	public static Dre computeDre(Automaton automata) {
+		return computeDre(automata, false);
+	}
+
+	/***
+	 * This method computes for a given deterministic finite automata a
+	 * deterministic regular expression.
+	 * 
+	 * @param automata
+	 * @param minimizeSubAutomata
+	 *            if true, every sub-automata of the recursion is minimized,
+	 *            see {@link #BKW(boolean)}
+	 * @return a deterministic regular expression with the same language as
+	 *         the automata
+	 * @throws NotOneUnambiguousException
+	 *             if there is no equivalent deterministic regular expression
+	 */
+	public static Dre computeDre(Automaton automata, boolean minimizeSubAutomata) {
+		FiniteStateAutomata<State, CharRange> fsa = prepare(automata);
+
+		// sorted, so the symbols of a union appear in the order of the characters
+		Set<CharRange> alphabet = new TreeSet<>();
+		fsa.forEachTransition((p, a, q) -> alphabet.add(a));
+
+		long start = Metrics.start();
+		try {
+			return new BKW<State, CharRange>(minimizeSubAutomata).computeDre(fsa, alphabet);
+		} finally {
+			Metrics.stop(Timer.BKW, start);
+		}
+	}
+
+	/***
+	 * Decides if there is a deterministic regular expression for the language
+	 * of the automata, see {@link #isOneUnambiguous(ReadOnlyFiniteStateAutomata)}.
+	 * 
+	 * @param automata
+	 * @return the result
+	 */
+	public static OneUnambiguityResult<State> isOneUnambiguous(Automaton automata) {
+		return new BKW<State, CharRange>().isOneUnambiguous(prepare(automata));
+	}
+
+	/***
+	 * Makes the automata deterministic and minimal, and translates it.
+	 * 
+	 * @param automata
+	 * @return
+	 */
+	private static FiniteStateAutomata<State, CharRange> prepare(Automaton automata) {
+		long start = Metrics.start();
 		// check if input is deterministic and minimal
 		if (!automata.isDeterministic())
 			automata.determinize();
 		automata.minimize();
+		Metrics.stop(Timer.MINIMIZATION, start);
 
-		FiniteStateAutomata<State, Character> fsa = minimalDKAutomata2FSA(automata);
-
-		Set<Character> alphabet = fsa.getTransitions().stream().map(t -> t.getKey().second())
-				.collect(Collectors.toSet());
-
-		return new BKW<State>().computeBKW(fsa, alphabet);
+		start = Metrics.start();
+		FiniteStateAutomata<State, CharRange> fsa = minimalDKAutomata2FSA(automata);
+		Metrics.stop(Timer.FSA_CONVERSION, start);
+		return fsa;
 	}
 
 	/***
@@ -109,73 +279,452 @@ public class BKW<S> {
 	 * 
 	 * @param automata
 	 * @return a deterministic regular expression (as String) with the same
-	 *         language as the automata. If there is no equivalent deterministic
-	 *         regular expression, it returns null.
+	 *         language as the automata.
+	 * @throws NotOneUnambiguousException
+	 *             if there is no equivalent deterministic regular expression
 	 */
-	public String computeBKW(FiniteStateAutomata<S, Character> fsa, Set<Character> alphabet) {
+	public String computeBKW(ReadOnlyFiniteStateAutomata<S, A> fsa, Set<A> alphabet) {
+		return computeDre(fsa, alphabet).toString();
+	}
+
+	/***
+	 * This method computes for a given deterministic finite automata a
+	 * deterministic regular expression. Equal sub-expressions of the result
+	 * are shared, also between the results of several calls on the same
+	 * instance.
+	 * 
+	 * @param automata
+	 * @param alphabet
+	 *            the symbols of the automata. The symbols of a union are in
+	 *            the order of its iteration, so use a sorted set for a stable
+	 *            result.
+	 * @return a deterministic regular expression with the same language as
+	 *         the automata.
+	 * @throws NotOneUnambiguousException
+	 *             if there is no equivalent deterministic regular expression
+	 */
+	public Dre computeDre(ReadOnlyFiniteStateAutomata<S, A> fsa, Set<A> alphabet) {
+		// tasks can only be forked from inside the pool
+		if (pool != null && ForkJoinTask.getPool() != pool)
+			return pool.invoke(new SubProblem(fsa, alphabet, false));
+
+		// identical sub-automata show up in many branches of the recursion,
+		// so every solved sub-problem is remembered
+		Fingerprint key = new Fingerprint(fsa, alphabet);
+		Dre result = memo.get(key);
+		if (result == null) {
+			result = computeUncachedBKW(fsa, alphabet);
+			memo.put(key, result);
+		}
+		return result;
+	}
+
+	/***
+	 * Decides if there is a deterministic regular expression for the language
+	 * of a deterministic finite automata. This runs the same recursion as
+	 * {@link #computeDre(ReadOnlyFiniteStateAutomata, Set)}, but only performs the
+	 * checks and builds no expressions. It stops at the first failure.
+	 * 
+	 * @param fsa
+	 * @return the result, with the states that show the failure if the
+	 *         language is not one-unambiguous
+	 */
+	public OneUnambiguityResult<S> isOneUnambiguous(ReadOnlyFiniteStateAutomata<S, A> fsa) {
+		Set<A> alphabet = fsa.getTransitions().stream().map(t -> t.getKey().second()).collect(Collectors.toSet());
+		try {
+			check(fsa, alphabet);
+			return OneUnambiguityResult.success();
+		} catch (NotOneUnambiguousException e) {
+			return OneUnambiguityResult.failure(e);
+		}
+	}
+
+	/***
+	 * Does the work of {@link #isOneUnambiguous(ReadOnlyFiniteStateAutomata)}.
+	 * 
+	 * @param fsa
+	 * @param alphabet
+	 * @throws NotOneUnambiguousException
+	 *             if the language of fsa is not one-unambiguous
+	 */
+	private void check(ReadOnlyFiniteStateAutomata<S, A> fsa, Set<A> alphabet) {
+		if (isBaseCase(fsa))
+			return;
+		Fingerprint key = new Fingerprint(fsa, alphabet);
+		if (checked.contains(key) || memo.containsKey(key))
+			return;
+
+		for (ReadOnlyFiniteStateAutomata<S, A> a : decompose(fsa, alphabet).sub)
+			check(minimizeSubAutomata ? a.minimize() : a, alphabet);
+		checked.add(key);
+	}
+
+	/***
+	 * Does the work of {@link #computeDre(ReadOnlyFiniteStateAutomata, Set)}.
+	 * 
+	 * @param fsa
+	 * @param alphabet
+	 * @return
+	 */
+	private Dre computeUncachedBKW(ReadOnlyFiniteStateAutomata<S, A> fsa, Set<A> alphabet) {
 
 		// If the Automata has only one state q and no transitions then return
 		// epsilon if q is final or emptyset.
-		if (fsa.getStates().size() == 1 && fsa.getTransitions().isEmpty()) {
+		if (isBaseCase(fsa)) {
 			if (fsa.isAccepting(fsa.getInitialState()))
-				return "λ"; // () is the empty word in
-							// dk.brics.automata
+				return dres.epsilon(); // () is the empty word in
+										// dk.brics.automata
 			else
-				return "#"; // # is the empty String in
-							// dk.brics.automata
+				return dres.empty(); // # is the empty String in
+										// dk.brics.automata
+		}
+
+		// lets a caller like BatchBKW stop the computation
+		if (Thread.currentThread().isInterrupted())
+			throw new CancellationException("interrupted");
+
+		Metrics.count(Counter.BKW_CALLS, 1);
+		int[] level = depth.get();
+		level[0]++;
+		Metrics.count(Counter.BKW_MAX_DEPTH, level[0]);
+		Decomposition d;
+		List<Dre> results;
+		try {
+			d = decompose(fsa, alphabet);
+			results = computeSubBKW(fsa, d.sub, alphabet);
+		} finally {
+			level[0]--;
+		}
+
+		Dre s1 = results.get(0);
+		Dre s2 = unionBranches(d.symbols, results);
+
+		switch (d.kind) {
+		case STAR:
+			return dres.concat(s1, dres.star(s2));
+		case OPTIONAL:
+			return dres.concat(s1, dres.optional(s2));
+		default:
+			return dres.concat(s1, s2);
+		}
+	}
+
+	/***
+	 * @param fsa
+	 * @return true, if the recursion ends at fsa. That is if fsa has only one
+	 *         state and no transitions, or no accepting states.
+	 */
+	private boolean isBaseCase(ReadOnlyFiniteStateAutomata<S, A> fsa) {
+		return (fsa.getStates().size() == 1 && fsa.getTransitions().isEmpty())
+				|| fsa.getAcceptingStates().isEmpty();
+	}
+
+	/***
+	 * How the results of the sub-automata are combined to the result
+	 * (r_0)(x), where x is a(r_1)+b(r_2)+...
+	 */
+	private enum Kind {
+		/***
+		 * (r_0)(x)*
+		 */
+		STAR,
+		/***
+		 * (r_0)(x)?
+		 */
+		OPTIONAL,
+		/***
+		 * (r_0)(x)
+		 */
+		CONCAT
+	}
+
+	/***
+	 * One step of the recursion: the sub-automata A_0, A_1, ... and the
+	 * symbols a, b, ..., such that the result is built from the results r_0,
+	 * r_1, ... of the sub-automata as described by the kind.
+	 */
+	private final class Decomposition {
+		final Kind kind;
+		final List<A> symbols;
+		final List<ReadOnlyFiniteStateAutomata<S, A>> sub;
+
+		Decomposition(Kind kind, List<A> symbols, List<ReadOnlyFiniteStateAutomata<S, A>> sub) {
+			this.kind = kind;
+			this.symbols = symbols;
+			this.sub = sub;
 		}
+	}
 
-		List<Tuple<FiniteStateAutomata<S, Character>, Collection<Gate>>> orbits = computeOrbits(fsa);
+	/***
+	 * Performs one step of the recursion, without computing any expression.
+	 * 
+	 * @param fsa
+	 *            an automata that is no base case
+	 * @param alphabet
+	 * @return the sub-problems
+	 * @throws NotOneUnambiguousException
+	 *             if fsa fails the orbit property or the consistency
+	 */
+	private Decomposition decompose(ReadOnlyFiniteStateAutomata<S, A> fsa, Set<A> alphabet) {
+		Orbits orbits = computeOrbits(fsa);
+		Metrics.count(Counter.BKW_ORBITS, orbits.size());
 
 		if (orbits.size() == 1) {
-			Set<Character> S = computeConsistentSymbols(fsa, alphabet);
+			Map<A, S> S = computeConsistentSymbols(fsa);
 			// If we have exactly one orbit and no consistent symbols, we fail
 			if (S.isEmpty())
-				throw new RuntimeException("Fails the Consistency");
+				throw new NotOneUnambiguousException(Reason.CONSISTENCY, new ArrayList<>(fsa.getAcceptingStates()),
+						"Fails the Consistency, no symbol is consistent for the " + fsa.getAcceptingStates().size()
+								+ " accepting states of an orbit");
 
 			// Now we compute bkw(A_s)\\union(\bigunion_{a\in S} bkw(A_S^{w(a)})
 			// ),
 			// where w(a) is the unique state that is reached from the accepting
 			// states (scince a is consistent, this exist)
-			FiniteStateAutomata<S, Character> scut = computeScut(fsa, S);
+			ReadOnlyFiniteStateAutomata<S, A> scut = computeScut(fsa, S.keySet());
 
-			String s1 = computeBKW(scut, alphabet);
-			String s2 = S.stream().map(a -> "+" + a + "("
-					+ computeBKW(computeQAutomata(computeScut(fsa, S), computeWitnessStateForSymbol(fsa, a)), alphabet)
-					+ ")").reduce("", String::concat).substring(1);
+			// in the order of the alphabet, so the result does not depend on the
+			// order of the map
+			List<A> symbols = alphabet.stream().filter(S::containsKey).collect(Collectors.toList());
+			List<ReadOnlyFiniteStateAutomata<S, A>> sub = new ArrayList<>(symbols.size() + 1);
+			sub.add(scut);
+			for (A a : symbols)
+				sub.add(computeQAutomata(scut, S.get(a)));
 
-			return "(" + s1 + ")(" + s2 + ")*";
+			countSubAutomata(sub);
+			return new Decomposition(Kind.STAR, symbols, sub);
 		} else {
 
 			// if the automaton has not the orbitproperty we fail
-			if (!testOrbitProperty(fsa, orbits))
-				throw new RuntimeException("Fails the Orbitproperty");
+			Tuple<S, S> violation = findOrbitPropertyViolation(fsa, orbits);
+			if (violation != null)
+				throw new NotOneUnambiguousException(Reason.ORBIT_PROPERTY,
+						Arrays.asList(violation.first(), violation.second()),
+						"Fails the Orbitproperty, the gates " + violation.first() + " and " + violation.second()
+								+ " behave differently");
 
 			// compute unique states for startorbit
-			HashMap<Character, S> us = new HashMap<>(); // State q_a
-			for (Character a : alphabet) {
+			HashMap<A, S> us = new HashMap<>(); // State q_a
+			for (A a : alphabet) {
 				S sym = computeStateForSymbol(fsa, orbits, a);
 				if (sym != null)
 					us.put(a, sym);
 			}
 
-			FiniteStateAutomata<S, Character> q0 = computeOrbitAutomata(fsa, orbits, fsa.getInitialState()); // Orbitautomaton
+			ReadOnlyFiniteStateAutomata<S, A> q0 = computeOrbitAutomata(fsa, orbits, fsa.getInitialState()); // Orbitautomaton
 			// q_0
 
-			String s1 = computeBKW(q0, alphabet);
-			String s2 = alphabet.stream().map(a -> {
-				if (us.get(a) == null)
-					return "";
-				return "+" + a + "(" + computeBKW(computeQAutomata(fsa, us.get(a)), alphabet) + ")";
-			}).reduce("", String::concat).substring(1);
+			List<A> symbols = alphabet.stream().filter(a -> us.get(a) != null).collect(Collectors.toList());
+			List<ReadOnlyFiniteStateAutomata<S, A>> sub = new ArrayList<>(symbols.size() + 1);
+			sub.add(q0);
+			for (A a : symbols)
+				sub.add(computeQAutomata(fsa, us.get(a)));
 
+			countSubAutomata(sub);
 			if (q0.getAcceptingStates().stream().anyMatch(q -> fsa.getAcceptingStates().contains(q))) {
 				// Now return bkw(A_{q_0})\\union(\bigunion_{a\in \Sigma}
 				// bkw(A^{q_a)})?)
-				return "(" + s1 + ")(" + s2 + ")?";
+				return new Decomposition(Kind.OPTIONAL, symbols, sub);
 			} else // Now return bkw(A_{q_0})\\union(\bigunion_{a\in \Sigma}
 					// bkw(A^{q_a)}))
-				return "(" + s1 + ")(" + s2 + ")";
+				return new Decomposition(Kind.CONCAT, symbols, sub);
+		}
+	}
+
+	private static <S, A> void countSubAutomata(List<ReadOnlyFiniteStateAutomata<S, A>> sub) {
+		Metrics.count(Counter.BKW_SUB_AUTOMATA, sub.size());
+		for (ReadOnlyFiniteStateAutomata<S, A> a : sub) {
+			Metrics.count(Counter.BKW_SUB_AUTOMATA_STATES, a.getStates().size());
+			Metrics.count(Counter.BKW_MAX_SUB_AUTOMATA_STATES, a.getStates().size());
+		}
+	}
+
+	/***
+	 * Builds a(r_1)+b(r_2)+... for the symbols a, b, ... and the results r_1,
+	 * r_2, ..., where results.get(0) is skipped.
+	 */
+	private Dre unionBranches(List<A> symbols, List<Dre> results) {
+		List<Dre> branches = new ArrayList<>(symbols.size());
+		for (int i = 0; i < symbols.size(); i++)
+			branches.add(dres.concat(dres.symbol(symbols.get(i)), results.get(i + 1)));
+		return dres.union(branches);
+	}
+
+	/***
+	 * Continues the recursion on independent sub-automata. If there is a
+	 * pool and fsa is big enough, they are computed in parallel.
+	 * 
+	 * @param fsa
+	 *            the automata of the current recursion step
+	 * @param sub
+	 *            the sub-automata
+	 * @param alphabet
+	 * @return the results, in the order of sub
+	 */
+	private List<Dre> computeSubBKW(ReadOnlyFiniteStateAutomata<S, A> fsa,
+			List<ReadOnlyFiniteStateAutomata<S, A>> sub, Set<A> alphabet) {
+		List<Dre> results = new ArrayList<>(sub.size());
+		if (pool == null || sub.size() < 2 || fsa.getStates().size() < parallelThreshold) {
+			for (ReadOnlyFiniteStateAutomata<S, A> a : sub)
+				results.add(computeSubBKW(a, alphabet));
+			return results;
+		}
+
+		List<SubProblem> tasks = new ArrayList<>(sub.size() - 1);
+		for (int i = 1; i < sub.size(); i++) {
+			SubProblem task = new SubProblem(sub.get(i), alphabet, true);
+			task.fork();
+			tasks.add(task);
+		}
+		results.add(computeSubBKW(sub.get(0), alphabet));
+		for (SubProblem task : tasks)
+			results.add(task.join());
+		return results;
+	}
+
+	/***
+	 * A sub-problem of the recursion, for the parallel computation.
+	 */
+	private final class SubProblem extends RecursiveTask<Dre> {
+		private static final long serialVersionUID = 1L;
+
+		final ReadOnlyFiniteStateAutomata<S, A> fsa;
+		final Set<A> alphabet;
+		final boolean isSubAutomata;
+		/***
+		 * the depth of the step that created this sub-problem, it may run on
+		 * another thread
+		 */
+		final int parentDepth = depth.get()[0];
+
+		SubProblem(ReadOnlyFiniteStateAutomata<S, A> fsa, Set<A> alphabet, boolean isSubAutomata) {
+			this.fsa = fsa;
+			this.alphabet = alphabet;
+			this.isSubAutomata = isSubAutomata;
+		}
+
+		@Override
+		protected Dre compute() {
+			int[] level = depth.get();
+			int saved = level[0];
+			level[0] = parentDepth;
+			try {
+				if (isSubAutomata)
+					return computeSubBKW(fsa, alphabet);
+				return computeDre(fsa, alphabet);
+			} finally {
+				level[0] = saved;
+			}
+		}
+	}
+
+	/***
+	 * Continues the recursion on a sub-automata.
+	 * 
+	 * @param fsa
+	 * @param alphabet
+	 * @return
+	 */
+	private Dre computeSubBKW(ReadOnlyFiniteStateAutomata<S, A> fsa, Set<A> alphabet) {
+		if (minimizeSubAutomata)
+			fsa = fsa.minimize();
+		return computeDre(fsa, alphabet);
+	}
+
+	/***
+	 * @param q
+	 * @return the id of q, a new one if it has none
+	 */
+	private int stateId(S q) {
+		return stateIds.computeIfAbsent(q, p -> nextStateId.getAndIncrement());
+	}
+
+	/***
+	 * @param a
+	 * @return the id of a, a new one if it has none
+	 */
+	private int symbolId(A a) {
+		return symbolIds.computeIfAbsent(a, b -> nextSymbolId.getAndIncrement());
+	}
+
+	/***
+	 * A canonical description of a sub-problem, that is the state set, the
+	 * initial state, the accepting states, the transitions and the alphabet.
+	 * The states are described by their ids, the sets are stored as sorted
+	 * arrays. Two sub-problems with equal fingerprints have the same result.
+	 */
+	private final class Fingerprint {
+		final int initial;
+		final int[] states;
+		final int[] accepting;
+		/***
+		 * the transitions (p,a,q) as sorted keys (id(p) << 32 | id(a)) and the
+		 * targets id(q) in the same order
+		 */
+		final long[] keys;
+		final int[] targets;
+		final Set<A> alphabet;
+		final int hash;
+
+		Fingerprint(ReadOnlyFiniteStateAutomata<S, A> fsa, Set<A> alphabet) {
+			this.alphabet = alphabet;
+			initial = stateId(fsa.getInitialState());
+			accepting = sortedIds(fsa.getAcceptingStates());
+
+			HashMap<Integer, S> local = new HashMap<>(fsa.getStates().size() * 2);
+			states = new int[fsa.getStates().size()];
+			int i = 0;
+			for (S q : fsa.getStates()) {
+				states[i] = stateId(q);
+				local.put(states[i++], q);
+			}
+			Arrays.sort(states);
+
+			HashMap<Integer, A> localSymbols = new HashMap<>();
+			// collected in one pass, the size of the transitions of a view
+			// would be a scan of its own
+			LongStream.Builder k = LongStream.builder();
+			fsa.forEachTransition((p, a, q) -> {
+				int id = symbolId(a);
+				localSymbols.put(id, a);
+				k.add(((long) stateId(p) << 32) | id);
+			});
+			keys = k.build().sorted().toArray();
+			targets = new int[keys.length];
+			for (i = 0; i < keys.length; i++)
+				targets[i] = stateId(fsa.step(local.get((int) (keys[i] >>> 32)), localSymbols.get((int) keys[i])));
+
+			int h = initial;
+			h = 31 * h + Arrays.hashCode(states);
+			h = 31 * h + Arrays.hashCode(accepting);
+			h = 31 * h + Arrays.hashCode(keys);
+			h = 31 * h + Arrays.hashCode(targets);
+			hash = 31 * h + alphabet.hashCode();
+		}
+
+		private int[] sortedIds(Set<S> set) {
+			int[] result = new int[set.size()];
+			int i = 0;
+			for (S q : set)
+				result[i++] = stateId(q);
+			Arrays.sort(result);
+			return result;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof BKW.Fingerprint))
+				return false;
+			@SuppressWarnings("unchecked")
+			Fingerprint f = (Fingerprint) obj;
+			return hash == f.hash && initial == f.initial && Arrays.equals(states, f.states)
+					&& Arrays.equals(accepting, f.accepting) && Arrays.equals(keys, f.keys)
+					&& Arrays.equals(targets, f.targets) && alphabet.equals(f.alphabet);
 		}
 	}
 
@@ -186,60 +735,117 @@ public class BKW<S> {
 		}
 
 		S src;
-		List<Tuple<Character, S>> outgoing = new ArrayList<>();
+		List<Tuple<A, S>> outgoing = new ArrayList<>();
+
+		/***
+		 * the signature, that is if the gate is final, and the outgoing
+		 * transitions as sorted keys (id(a) << 32 | id(q)). Two gates behave
+		 * like eachother iff their signatures are equal.
+		 */
+		boolean accepting;
+		long[] signature;
+		int signatureHash;
+
+		void computeSignature(ReadOnlyFiniteStateAutomata<S, A> fsa) {
+			accepting = fsa.isAccepting(src);
+			signature = new long[outgoing.size()];
+			for (int i = 0; i < signature.length; i++) {
+				Tuple<A, S> t = outgoing.get(i);
+				signature[i] = ((long) symbolId(t.first()) << 32) | stateId(t.second());
+			}
+			Arrays.sort(signature);
+			signatureHash = 31 * Arrays.hashCode(signature) + Boolean.hashCode(accepting);
+		}
+
+		boolean hasSameSignature(Gate g) {
+			return signatureHash == g.signatureHash && accepting == g.accepting
+					&& Arrays.equals(signature, g.signature);
+		}
 	}
 
 	/***
-	 * Computes for the given Automata all the Oribits
+	 * The orbits of an automata, that are the strongly connected components of
+	 * its transition graph, together with their gates.
+	 */
+	private final class Orbits {
+		final ReadOnlyFiniteStateAutomata<S, A> fsa;
+		final CsrGraph<S> graph;
+		final StronglyConnectedComponents<S> scc;
+
+		/***
+		 * gates.get(c) are the gates of the orbit c
+		 */
+		final List<List<Gate>> gates;
+
+		Orbits(ReadOnlyFiniteStateAutomata<S, A> fsa, CsrGraph<S> graph, StronglyConnectedComponents<S> scc) {
+			this.fsa = fsa;
+			this.graph = graph;
+			this.scc = scc;
+			this.gates = new ArrayList<>(scc.size());
+		}
+
+		int size() {
+			return scc.size();
+		}
+
+		/***
+		 * @param state
+		 * @return the orbit of state, in O(1)
+		 */
+		int orbitOf(S state) {
+			return scc.getComponent(graph.getId(state));
+		}
+
+		List<Gate> getGates(int orbit) {
+			return gates.get(orbit);
+		}
+
+		/***
+		 * @param orbit
+		 * @return the automata restricted to the states of orbit, without
+		 *         initial state
+		 */
+		FiniteStateAutomataView<S, A> getAutomata(int orbit) {
+			return FiniteStateAutomataView.of(fsa).restrict(new HashSet<>(scc.getVertices(orbit)));
+		}
+	}
+
+	/***
+	 * Computes for the given Automata all the Oribits. The components are
+	 * computed once, then the transitions of every state are visited once to
+	 * find the gates, so this runs in O(|Q|+|δ|).
 	 * 
 	 * @param automata
 	 * @return
 	 */
-	public List<Tuple<FiniteStateAutomata<S, Character>, Collection<Gate>>> computeOrbits(
-			FiniteStateAutomata<S, Character> automata) {
-		List<Tuple<FiniteStateAutomata<S, Character>, Collection<Gate>>> orbits = new LinkedList<>();
-
-		GraphHelper<S, Character> help = new GraphHelper<S, Character>();
+	private Orbits computeOrbits(ReadOnlyFiniteStateAutomata<S, A> automata) {
 		// Calculates the strongly conntected components of the automata
-		Set<Set<S>> scc = help.tarjanSCC(automata);
-
-		for (Set<S> orbit : scc) {
-			// Achtung, keinen Startzustand zu setzen könnte probleme machen
-			FiniteStateAutomata<S, Character> fsa = new FiniteStateAutomata<S, Character>();
-			HashMap<S, Gate> gateList = new HashMap<>();
-			
-			for (S s : orbit) {
-				fsa.addState(s);
-			}
+		long start = Metrics.start();
+		CsrGraph<S> graph = CsrGraph.fromAutomata(automata);
+		Orbits orbits = new Orbits(automata, graph, GraphHelper.computeSCC(graph));
+		Metrics.stop(Timer.SCC, start);
+		StronglyConnectedComponents<S> scc = orbits.scc;
 
-			// Get gates and
-			for (Entry<Tuple<S, Character>, S> transition : automata.getTransitions()) {
-				S q = transition.getKey().first();
-				Character c = transition.getKey().second();
-				S p = transition.getValue();
-				// if transition begins from a state q in the orbit
-				if (orbit.contains(q)) {
-					// and it stays in the orbit, then add the transition
-					if (orbit.contains(p))
-						fsa.addTransition(q, c, p);
-					else // otherwise q is a gate, and should be added to the
-							// gatelist
-					{
-						if (!gateList.containsKey(q))
-							gateList.put(q, new Gate(q));
-						gateList.get(q).outgoing.add(new Tuple<Character, S>(c, p));
+		for (int c = 0; c < scc.size(); c++) {
+			List<Gate> gateList = new ArrayList<>();
+			for (int i = scc.getStart(c); i < scc.getEnd(c); i++) {
+				S q = scc.getVertex(scc.getMember(i));
+				Gate gate = null;
+				for (Tuple<A, S> t : automata.getTransitions(q)) {
+					// if the transition leaves the orbit, then q is a gate
+					if (scc.getComponent(graph.getId(t.second())) != c) {
+						if (gate == null)
+							gate = new Gate(q);
+						gate.outgoing.add(t);
 					}
 				}
+				// the final states are gates, too
+				if (gate == null && automata.isAccepting(q))
+					gate = new Gate(q);
+				if (gate != null)
+					gateList.add(gate);
 			}
-			// add the gates that are final states
-			for (S q : orbit) {
-				automata.isAccepting(q);
-				fsa.setAccepting(q, true);
-				if (!gateList.containsKey(q))
-					gateList.put(q, new Gate(q));
-			}
-
-			orbits.add(new Tuple<FiniteStateAutomata<S, Character>, Collection<Gate>>(fsa, gateList.values()));
+			orbits.gates.add(gateList);
 		}
 
 		return orbits;
@@ -251,40 +857,31 @@ public class BKW<S> {
 	 * q_2 is final, and 2. for all states q outside of the orbit there is a
 	 * transition (q_1,a,q) iff (q_2,a,q).
 	 * 
+	 * That is, all gates of an orbit have the same signature. So every gate is
+	 * only compared with the first gate of its orbit, which takes linear
+	 * time.
+	 * 
 	 * @param fsa
-	 * @return
+	 * @return two gates of an orbit that violate the orbit property, or null
+	 *         if there are none
 	 */
-	public boolean testOrbitProperty(FiniteStateAutomata<S, Character> fsa,
-			List<Tuple<FiniteStateAutomata<S, Character>, Collection<Gate>>> orbits) {
-		for (Tuple<FiniteStateAutomata<S, Character>, Collection<Gate>> tuple : orbits) {
-			FiniteStateAutomata<S, Character> orbit = tuple.first();
-			Collection<Gate> gates = tuple.getSecond();
-
-			for (Gate q1 : gates) {
-				for (Gate q2 : gates) {
-					if (q1 == q2)
-						continue;
-					// q1 have to be finial iff q2
-					if (fsa.isAccepting(q1.src) ^ fsa.isAccepting(q2.src))
-						return false;
-					for (Tuple<Character, S> t : q1.outgoing) {
-						// for all outgoing transitions (w.r.t. orbit of q1 and
-						// q2, the have to be behave like eachother
-						if (!q2.outgoing.contains(t))
-							return false;
-					}
-				}
+	private Tuple<S, S> findOrbitPropertyViolation(ReadOnlyFiniteStateAutomata<S, A> fsa, Orbits orbits) {
+		for (int c = 0; c < orbits.size(); c++) {
+			List<Gate> gates = orbits.getGates(c);
+			if (gates.size() < 2)
+				continue;
+
+			Gate first = gates.get(0);
+			first.computeSignature(fsa);
+			for (int i = 1; i < gates.size(); i++) {
+				Gate q = gates.get(i);
+				q.computeSignature(fsa);
+				if (!first.hasSameSignature(q))
+					return new Tuple<>(first.src, q.src);
 			}
 		}
 
-		return true;
-	}
-
-	private S computeWitnessStateForSymbol(FiniteStateAutomata<S, Character> fsa, Character a) {
-		for (S q : fsa.getAcceptingStates())
-			return fsa.step(q, a);
-		throw new UnsupportedOperationException(); // this should never ever
-													// happen!
+		return null;
 	}
 
 	/***
@@ -295,13 +892,18 @@ public class BKW<S> {
 	 * @param q
 	 * @return
 	 */
-	private FiniteStateAutomata<S, Character> computeQAutomata(FiniteStateAutomata<S, Character> fsa, S q) {
-		FiniteStateAutomata<S, Character> result = new FiniteStateAutomata<S, Character>(fsa);
-
-		result.setInitialState(q);
-		result.removeUnreachable();
+	private ReadOnlyFiniteStateAutomata<S, A> computeQAutomata(ReadOnlyFiniteStateAutomata<S, A> fsa, S q) {
+		HashSet<S> reached = new HashSet<>();
+		ArrayDeque<S> queue = new ArrayDeque<>();
+		reached.add(q);
+		queue.add(q);
+		while (!queue.isEmpty()) {
+			for (Tuple<A, S> t : fsa.getTransitions(queue.remove()))
+				if (reached.add(t.second()))
+					queue.add(t.second());
+		}
 
-		return result;
+		return FiniteStateAutomataView.of(fsa).restrict(reached).withInitialState(q);
 	}
 
 	/***
@@ -313,20 +915,18 @@ public class BKW<S> {
 	 * @param q
 	 * @return
 	 */
-	private FiniteStateAutomata<S, Character> computeOrbitAutomata(FiniteStateAutomata<S, Character> fsa,
-			List<Tuple<FiniteStateAutomata<S, Character>, Collection<Gate>>> orbits, S state) {
+	private ReadOnlyFiniteStateAutomata<S, A> computeOrbitAutomata(ReadOnlyFiniteStateAutomata<S, A> fsa, Orbits orbits, S state) {
 		// finite the orbit from state;
-		Tuple<FiniteStateAutomata<S, Character>, Collection<Gate>> orbit = findOrbitofState(orbits, state);
-		FiniteStateAutomata<S, Character> result = new FiniteStateAutomata<>(orbit.first());
+		int orbit = orbits.orbitOf(state);
 
-		result.getAcceptingStates().clear();
-		result.setInitialState(state);
-		result.removeUnreachable();
-		for (Gate g : orbit.getSecond()) {
-			result.setAccepting(g.src, true);
+		// all states of the orbit are reachable from state, so there is
+		// nothing to remove
+		HashSet<S> gates = new HashSet<>();
+		for (Gate g : orbits.getGates(orbit)) {
+			gates.add(g.src);
 		}
 
-		return result;
+		return orbits.getAutomata(orbit).withInitialState(state).withAcceptingStates(gates);
 	}
 
 	/***
@@ -338,16 +938,14 @@ public class BKW<S> {
 	 * @param a
 	 * @return
 	 */
-	private S computeStateForSymbol(FiniteStateAutomata<S, Character> fsa,
-			List<Tuple<FiniteStateAutomata<S, Character>, Collection<Gate>>> orbits, Character a) {
+	private S computeStateForSymbol(ReadOnlyFiniteStateAutomata<S, A> fsa, Orbits orbits, A a) {
 
 		// finite the orbit from initial state;
-		Tuple<FiniteStateAutomata<S, Character>, Collection<Gate>> orbit = findOrbitofState(orbits,
-				fsa.getInitialState());
+		int orbit = orbits.orbitOf(fsa.getInitialState());
 
-		for (Gate gate : orbit.getSecond()) {
-			for (Tuple<Character, S> og : gate.outgoing) {
-				if (og.getFirst() == a)
+		for (Gate gate : orbits.getGates(orbit)) {
+			for (Tuple<A, S> og : gate.outgoing) {
+				if (og.getFirst().equals(a))
 					return og.getSecond();
 			}
 		}
@@ -357,17 +955,6 @@ public class BKW<S> {
 		// happen
 	}
 
-	private Tuple<FiniteStateAutomata<S, Character>, Collection<Gate>> findOrbitofState(
-			List<Tuple<FiniteStateAutomata<S, Character>, Collection<Gate>>> orbits, S state) {
-		for (Tuple<FiniteStateAutomata<S, Character>, Collection<Gate>> o : orbits) {
-			if (o.first().getStates().contains(state)) {
-				return o;
-			}
-		}
-		throw new UnsupportedOperationException(); // this should never ever
-		// happen
-	}
-
 	/***
 	 * The S-cut is obtained by removing any transition (q,a,p) from the
 	 * automata, where q is a finite state and a in S. *
@@ -377,21 +964,12 @@ public class BKW<S> {
 	 *            The set S
 	 * @return
 	 */
-	private FiniteStateAutomata<S, Character> computeScut(FiniteStateAutomata<S, Character> fsa, Set<Character> s) {
-		FiniteStateAutomata<S, Character> result = new FiniteStateAutomata<S, Character>(fsa);
-
-		result.getAcceptingStates().forEach(q -> {
-			for (Iterator<Map.Entry<Tuple<S, Character>, S>> iterator = result.getTransitions().iterator(); iterator
-					.hasNext();) {
-				// Remove transition if sign is in S
-				Map.Entry<Tuple<S, Character>, S> entry = iterator.next();
-				if (entry.getKey().first() == q && s.contains(entry.getKey().getSecond())) {
-					iterator.remove();
-				}
-			}
-		});
-
-		return result;
+	private ReadOnlyFiniteStateAutomata<S, A> computeScut(ReadOnlyFiniteStateAutomata<S, A> fsa, Set<A> s) {
+		// Remove transition if sign is in S
+		Map<S, Set<A>> removed = new HashMap<>();
+		for (S q : fsa.getAcceptingStates())
+			removed.put(q, s);
+		return FiniteStateAutomataView.of(fsa).removeTransitions(removed);
 	}
 
 	/***
@@ -399,36 +977,56 @@ public class BKW<S> {
 	 * exists, such that all accepting state have a transition to q for that
 	 * symbol.
 	 * 
+	 * The candidates are the outgoing transitions of one accepting state. Then
+	 * the outgoing transitions of the other accepting states are visited once
+	 * and count for the candidate they agree with, so this runs in
+	 * O(Σ_{q∈F} outdeg(q)).
+	 * 
 	 * @param automata
-	 * @return The set of consistent symbols.
+	 * @return The consistent symbols a, mapped to the state w(a) that all
+	 *         accepting states reach with a. Empty if there is no accepting
+	 *         state.
 	 */
-	private Set<Character> computeConsistentSymbols(FiniteStateAutomata<S, Character> fsa, Set<Character> alpabet) {
-
-		if (fsa.getAcceptingStates().size() == 0)
-			return alpabet;
+	private Map<A, S> computeConsistentSymbols(ReadOnlyFiniteStateAutomata<S, A> fsa) {
+		Iterator<S> accepting = fsa.getAcceptingStates().iterator();
+		if (!accepting.hasNext())
+			return Collections.emptyMap();
 
-		Set<Character> result = new HashSet<>();
+		S first = accepting.next();
+		HashMap<A, Candidate> candidates = new HashMap<>();
+		for (Tuple<A, S> t : fsa.getTransitions(first))
+			candidates.put(t.first(), new Candidate(t.second()));
 
-		alpabet.forEach(c -> {
-			S q = null;
-			for (S a : fsa.getAcceptingStates()) {
-				S r = fsa.step(a, c);
-				if (r == null) // sollte nicht passieren
-					continue;
-				if (q == null) {
-					q = r;
-					continue;
-				}
-				// Symbol is not consistent
-				if (q != r) {
-					q = null;
-					break;
-				}
+		int others = 0;
+		while (accepting.hasNext() && !candidates.isEmpty()) {
+			S q = accepting.next();
+			others++;
+			for (Tuple<A, S> t : fsa.getTransitions(q)) {
+				Candidate c = candidates.get(t.first());
+				if (c != null && c.witness.equals(t.second()))
+					c.agreeing++;
 			}
-			if (q != null)
-				result.add(c);
-		});
+		}
 
+		HashMap<A, S> result = new HashMap<>();
+		for (Entry<A, Candidate> e : candidates.entrySet()) {
+			// a is only consistent if every accepting state has the transition
+			if (e.getValue().agreeing == others)
+				result.put(e.getKey(), e.getValue().witness);
+		}
 		return result;
 	}
+
+	/***
+	 * A candidate for a consistent symbol, with the number of further
+	 * accepting states that reach the same state with it.
+	 */
+	private class Candidate {
+		final S witness;
+		int agreeing = 0;
+
+		Candidate(S witness) {
+			this.witness = witness;
+		}
+	}
 }
@@ -0,0 +1,424 @@
+package edu.udo.cs.ls1.fltl.reg.bkw;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.InvalidParameterException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.RegExp;
+import edu.udo.cs.ls1.fltl.metrics.Metrics;
+import edu.udo.cs.ls1.fltl.metrics.Metrics.Timer;
+
+/***
+ * Computes deterministic regular expressions for many regular expressions.
+ * The jobs run on a fixed number of workers, and at most a bounded number of
+ * jobs waits for a worker. The results are written in the order of the input.
+ *
+ * Every job has its own timeout, which starts when a worker takes the job.
+ * Neither brics nor the determinization react to interrupts, so a worker
+ * whose job timed out is given up and a new worker takes its place, for at
+ * most as many given up workers as there are workers. Errors of a job, also
+ * an Error like OutOfMemoryError, only end this job.
+ *
+ * The input has one regular expression in the syntax of brics per line, blank
+ * lines are skipped. Every output line is STATUS, the input and the DRE or a
+ * message, separated by tabs.
+ *
+ * @author Kai Sauerwald
+ *
+ */
+public class BatchBKW implements AutoCloseable {
+
+	public enum Status {
+		/***
+		 * the DRE was computed
+		 */
+		OK,
+		/***
+		 * there is no DRE for the language
+		 */
+		NO_DRE,
+		/***
+		 * the job took longer than the timeout
+		 */
+		TIMEOUT,
+		/***
+		 * the job failed, e.g. since the input is no regular expression
+		 */
+		ERROR
+	}
+
+	/***
+	 * The result of one job.
+	 */
+	public static class Result {
+		private final String input;
+		private final Status status;
+		private final Dre dre;
+		private final String message;
+
+		Result(String input, Status status, Dre dre, String message) {
+			this.input = input;
+			this.status = status;
+			this.dre = dre;
+			this.message = message;
+		}
+
+		public String getInput() {
+			return input;
+		}
+
+		public Status getStatus() {
+			return status;
+		}
+
+		/***
+		 *
+		 * @return the DRE, or null if the status is not OK
+		 */
+		public Dre getDre() {
+			return dre;
+		}
+
+		/***
+		 *
+		 * @return why there is no DRE, or null if the status is OK
+		 */
+		public String getMessage() {
+			return message;
+		}
+
+		/***
+		 * Writes the result as one line, without line break.
+		 *
+		 * @param out
+		 * @throws IOException
+		 */
+		public void writeTo(Appendable out) throws IOException {
+			out.append(status.name()).append('\t').append(input).append('\t');
+			if (dre != null)
+				dre.writeTo(out);
+			else
+				out.append(message.replace('\n', ' ').replace('\r', ' '));
+		}
+	}
+
+	private final int workers;
+	private final int queueCapacity;
+	private final long timeout;
+
+	private final ThreadPoolExecutor executor;
+	private final ScheduledThreadPoolExecutor watchdog;
+
+	/***
+	 * a job holds a slot from its submission until its worker is free again,
+	 * so the queue of the executor never overflows
+	 */
+	private final Semaphore slots;
+
+	/***
+	 *
+	 * @param workers
+	 *            the number of jobs that are computed at the same time
+	 * @param queueCapacity
+	 *            the number of jobs that may wait for a worker
+	 * @param timeout
+	 *            the time in milliseconds a job may take
+	 */
+	public BatchBKW(int workers, int queueCapacity, long timeout) {
+		if (workers < 1 || queueCapacity < 1 || timeout < 1)
+			throw new IllegalArgumentException("workers, queueCapacity and timeout have to be positive");
+		this.workers = workers;
+		this.queueCapacity = queueCapacity;
+		this.timeout = timeout;
+		executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(workers + queueCapacity), daemonThreads("bkw-worker-"));
+		slots = new Semaphore(workers + queueCapacity);
+		watchdog = new ScheduledThreadPoolExecutor(1, daemonThreads("bkw-watchdog-"));
+		// most jobs finish in time, their timers should not pile up
+		watchdog.setRemoveOnCancelPolicy(true);
+	}
+
+	private static ThreadFactory daemonThreads(String prefix) {
+		AtomicInteger count = new AtomicInteger();
+		return r -> {
+			Thread t = new Thread(r, prefix + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		};
+	}
+
+	/***
+	 * Reads regular expressions, one per line, and writes the results in the
+	 * same order. Only as many results as there are workers and waiting jobs
+	 * are held at the same time.
+	 *
+	 * @param in
+	 * @param out
+	 * @return the number of jobs
+	 * @throws IOException
+	 *             if reading or writing fails
+	 */
+	public int run(BufferedReader in, Writer out) throws IOException {
+		// the submitted jobs whose results are not written yet, in input order
+		ArrayDeque<CompletableFuture<Result>> pending = new ArrayDeque<>();
+		int limit = workers + queueCapacity;
+		int jobs = 0;
+
+		String line;
+		while ((line = in.readLine()) != null) {
+			String regexp = line.trim();
+			if (regexp.isEmpty())
+				continue;
+			while (pending.size() >= limit)
+				write(pending.remove(), out);
+			pending.add(submit(regexp));
+			jobs++;
+		}
+		while (!pending.isEmpty())
+			write(pending.remove(), out);
+		out.flush();
+
+		return jobs;
+	}
+
+	/***
+	 * Writes the result, after it is computed. The results so far are flushed
+	 * before waiting for it.
+	 */
+	private static void write(CompletableFuture<Result> result, Writer out) throws IOException {
+		if (!result.isDone())
+			out.flush();
+		result.join().writeTo(out);
+		out.write('\n');
+	}
+
+	/***
+	 * Submits a job, waits while there are too many jobs.
+	 */
+	private CompletableFuture<Result> submit(String regexp) throws InterruptedIOException {
+		try {
+			slots.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting for a worker");
+		}
+		Job job = new Job(regexp);
+		executor.execute(job);
+		return job.result;
+	}
+
+	/***
+	 * the given up workers that still run
+	 */
+	private int givenUp = 0;
+
+	/***
+	 * the number of given up workers for which the pool has an additional
+	 * thread, at most {@link #workers}
+	 */
+	private int replaced = 0;
+
+	/***
+	 * A worker that is given up may still run, and neither brics nor BKW react
+	 * to interrupts. The pool gets one more thread for it, but only for up to
+	 * {@link #workers} given up workers at the same time, so there are at most
+	 * twice as many threads as workers. Beyond that, the waiting jobs wait
+	 * for the given up workers, which end at the latest with an
+	 * OutOfMemoryError.
+	 */
+	private synchronized void giveUpWorker() {
+		givenUp++;
+		if (replaced < workers) {
+			replaced++;
+			executor.setMaximumPoolSize(executor.getMaximumPoolSize() + 1);
+			executor.setCorePoolSize(executor.getCorePoolSize() + 1);
+		}
+	}
+
+	/***
+	 * A given up worker finished its job. If the pool has an additional thread
+	 * for it, the pool shrinks again, otherwise the worker takes new jobs.
+	 */
+	private synchronized void workerReturned() {
+		givenUp--;
+		if (replaced > 0) {
+			replaced--;
+			executor.setCorePoolSize(executor.getCorePoolSize() - 1);
+			executor.setMaximumPoolSize(executor.getMaximumPoolSize() - 1);
+		}
+	}
+
+	private class Job implements Runnable {
+		final String regexp;
+		final CompletableFuture<Result> result = new CompletableFuture<>();
+
+		/***
+		 * the worker, while the job runs and is not finished or timed out
+		 */
+		private Thread worker;
+		private boolean timedOut = false;
+
+		Job(String regexp) {
+			this.regexp = regexp;
+		}
+
+		/***
+		 * The slot of the job is released exactly once: by {@link #timeout()}
+		 * if the job timed out, so the input does not wait for the given up
+		 * worker, and here otherwise. The result is completed in any case, also
+		 * if the job ends with an error like an OutOfMemoryError.
+		 */
+		@Override
+		public void run() {
+			Result r = null;
+			try {
+				r = compute();
+			} catch (Throwable t) {
+				r = new Result(regexp, Status.ERROR, null, t.toString());
+			} finally {
+				synchronized (this) {
+					worker = null;
+					if (timedOut) {
+						// clear the interrupt, so the next job is not affected
+						Thread.interrupted();
+						workerReturned();
+					} else
+						slots.release();
+				}
+				// does nothing if the job timed out
+				result.complete(r != null ? r : new Result(regexp, Status.ERROR, null, "failed"));
+			}
+		}
+
+		private Result compute() throws NotOneUnambiguousException {
+			synchronized (this) {
+				worker = Thread.currentThread();
+			}
+			ScheduledFuture<?> timer = watchdog.schedule(this::timeout, timeout, TimeUnit.MILLISECONDS);
+			try {
+				long start = Metrics.start();
+				RegExp parsed = new RegExp(regexp);
+				Metrics.stop(Timer.REGEX_PARSE, start);
+				start = Metrics.start();
+				Automaton aut = parsed.toAutomaton(true);
+				Metrics.stop(Timer.DFA_CONSTRUCTION, start);
+				Dre dre = BKW.computeDre(aut);
+				return new Result(regexp, Status.OK, dre, null);
+			} catch (NotOneUnambiguousException e) {
+				return new Result(regexp, Status.NO_DRE, null, e.getMessage());
+			} finally {
+				timer.cancel(false);
+			}
+		}
+
+		synchronized void timeout() {
+			if (worker == null)
+				return;
+			timedOut = true;
+			slots.release();
+			result.complete(new Result(regexp, Status.TIMEOUT, null, "no result after " + timeout + " ms"));
+			giveUpWorker();
+			worker.interrupt();
+		}
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+		watchdog.shutdownNow();
+	}
+
+	/***
+	 * 
+	 * @param out
+	 * @return a stream that writes to out, and only flushes it when closed
+	 */
+	private static OutputStream unclosable(OutputStream out) {
+		return new FilterOutputStream(out) {
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+			}
+
+			@Override
+			public void close() throws IOException {
+				flush();
+			}
+		};
+	}
+
+	public static void main(String[] args) throws IOException {
+		int threads = Runtime.getRuntime().availableProcessors();
+		int queue = -1;
+		long timeout = 60000;
+		String inputFile = null;
+		String outputFile = null;
+
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.startsWith("--")) {
+				if (arg.equals("--help")) {
+					System.out.println("java " + BatchBKW.class.getName() + " <parameter> [Eingabedatei]");
+					System.out.println("Liest reguläre Ausdrücke zeilenweise aus der Datei, oder der Standardeingabe.");
+					System.out.println("--threads k\tAnzahl der Worker (Standard: Anzahl der Prozessoren)");
+					System.out.println("--queue q\tAnzahl der wartenden Aufgaben (Standard: 4k)");
+					System.out.println("--timeout ms\tZeitlimit pro Ausdruck in Millisekunden (Standard: 60000)");
+					System.out.println("--output datei\tDatei für die Ausgabe (Standard: Standardausgabe)");
+					return;
+				}
+				if (i == args.length - 1)
+					throw new InvalidParameterException("Fehlendes Argument für Parameter: " + arg);
+				String value = args[++i];
+				switch (arg) {
+				case "--threads":
+					threads = Integer.parseInt(value);
+					break;
+				case "--queue":
+					queue = Integer.parseInt(value);
+					break;
+				case "--timeout":
+					timeout = Long.parseLong(value);
+					break;
+				case "--output":
+					outputFile = value;
+					break;
+				default:
+					throw new InvalidParameterException("Unbekannter Parameter: " + arg);
+				}
+			} else if (i == args.length - 1) {
+				inputFile = arg;
+			} else
+				throw new InvalidParameterException("Kann Paramter " + arg + " nicht interpretieren");
+		}
+		if (queue < 0)
+			queue = 4 * threads;
+
+		try (BatchBKW batch = new BatchBKW(threads, queue, timeout);
+				BufferedReader in = new BufferedReader(inputFile == null || inputFile.equals("-")
+						? new InputStreamReader(System.in) : new FileReader(inputFile));
+				Writer out = new BufferedWriter(outputFile == null ? new OutputStreamWriter(unclosable(System.out))
+						: new FileWriter(outputFile))) {
+			batch.run(in, out);
+		}
+	}
+}
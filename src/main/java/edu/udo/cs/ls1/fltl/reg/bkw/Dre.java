@@ -0,0 +1,313 @@
+package edu.udo.cs.ls1.fltl.reg.bkw;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import edu.udo.cs.ls1.fltl.reg.CharRange;
+
+/***
+ * An immutable regular expression, as computed by {@link BKW}. Expressions
+ * are built by a {@link DreFactory}, which shares equal sub-expressions, so an
+ * expression is a directed acyclic graph and may be exponentially smaller
+ * than its written form.
+ *
+ * The written form is the one of {@link BKW}: λ is the empty word, # the
+ * empty set, + the union, and the operands of a concatenation and of * and ?
+ * are put in parentheses, unless they are a single symbol. A {@link CharRange}
+ * is written as a character class. It is written without recursion, so also
+ * very deep expressions can be written.
+ *
+ * Two expressions of the same factory are equal iff they are the same object.
+ *
+ * @author Kai Sauerwald
+ *
+ */
+public abstract class Dre {
+
+	private final int hash;
+
+	/***
+	 * the length of the written form
+	 */
+	private final long length;
+
+	Dre(int hash, long length) {
+		this.hash = hash;
+		this.length = length;
+	}
+
+	/***
+	 *
+	 * @return the number of characters of the written form
+	 */
+	public long length() {
+		return length;
+	}
+
+	/***
+	 * Writes the expression.
+	 *
+	 * @param out
+	 * @throws IOException
+	 *             if out throws one
+	 */
+	public void writeTo(Appendable out) throws IOException {
+		// the stack holds expressions and strings that are still to be written
+		ArrayDeque<Object> stack = new ArrayDeque<>();
+		stack.push(this);
+		while (!stack.isEmpty()) {
+			Object o = stack.pop();
+			if (o instanceof Dre)
+				((Dre) o).expand(stack);
+			else
+				out.append((String) o);
+		}
+	}
+
+	/***
+	 * Pushes the parts of the written form onto the stack, in reverse order.
+	 */
+	abstract void expand(ArrayDeque<Object> stack);
+
+	/***
+	 *
+	 * @return true, if the expression is not put in parentheses as an operand
+	 */
+	boolean isAtomic() {
+		return false;
+	}
+
+	/***
+	 * Pushes e as an operand onto the stack.
+	 */
+	static void pushOperand(ArrayDeque<Object> stack, Dre e) {
+		if (e.isAtomic()) {
+			stack.push(e);
+		} else {
+			stack.push(")");
+			stack.push(e);
+			stack.push("(");
+		}
+	}
+
+	static long operandLength(Dre e) {
+		return e.isAtomic() ? e.length : e.length + 2;
+	}
+
+	@Override
+	public final int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder((int) Math.min(length, Integer.MAX_VALUE - 8));
+		try {
+			writeTo(sb);
+		} catch (IOException e) {
+			// a StringBuilder throws none
+			throw new AssertionError(e);
+		}
+		return sb.toString();
+	}
+
+	/***
+	 * The empty word.
+	 */
+	public static final class Epsilon extends Dre {
+		Epsilon() {
+			super(1, 1);
+		}
+
+		@Override
+		void expand(ArrayDeque<Object> stack) {
+			stack.push("λ");
+		}
+	}
+
+	/***
+	 * The empty set.
+	 */
+	public static final class Empty extends Dre {
+		Empty() {
+			super(2, 1);
+		}
+
+		@Override
+		void expand(ArrayDeque<Object> stack) {
+			stack.push("#");
+		}
+	}
+
+	/***
+	 * A symbol, written as its toString.
+	 */
+	public static final class Symbol extends Dre {
+		private final Object symbol;
+		private final String text;
+
+		Symbol(Object symbol, String text) {
+			super(symbol.hashCode(), text.length());
+			this.symbol = symbol;
+			this.text = text;
+		}
+
+		public Object getSymbol() {
+			return symbol;
+		}
+
+		@Override
+		boolean isAtomic() {
+			return true;
+		}
+
+		@Override
+		void expand(ArrayDeque<Object> stack) {
+			stack.push(text);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Symbol && ((Symbol) obj).symbol.equals(symbol);
+		}
+	}
+
+	public static final class Concat extends Dre {
+		private final Dre left;
+		private final Dre right;
+
+		Concat(Dre left, Dre right) {
+			super(31 * (31 * 3 + left.hashCode()) + right.hashCode(), operandLength(left) + operandLength(right));
+			this.left = left;
+			this.right = right;
+		}
+
+		public Dre getLeft() {
+			return left;
+		}
+
+		public Dre getRight() {
+			return right;
+		}
+
+		@Override
+		void expand(ArrayDeque<Object> stack) {
+			pushOperand(stack, right);
+			pushOperand(stack, left);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Concat))
+				return false;
+			Concat c = (Concat) obj;
+			// the operands are shared by the factory
+			return left == c.left && right == c.right;
+		}
+	}
+
+	public static final class Union extends Dre {
+		private final Dre[] alternatives;
+
+		Union(Dre[] alternatives) {
+			super(31 * 4 + Arrays.hashCode(alternatives), length(alternatives));
+			this.alternatives = alternatives;
+		}
+
+		private static long length(Dre[] alternatives) {
+			long l = Math.max(0, alternatives.length - 1);
+			for (Dre e : alternatives)
+				l += e.length();
+			return l;
+		}
+
+		public List<Dre> getAlternatives() {
+			return Collections.unmodifiableList(Arrays.asList(alternatives));
+		}
+
+		@Override
+		void expand(ArrayDeque<Object> stack) {
+			for (int i = alternatives.length - 1; i >= 0; i--) {
+				stack.push(alternatives[i]);
+				if (i > 0)
+					stack.push("+");
+			}
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Union))
+				return false;
+			Dre[] other = ((Union) obj).alternatives;
+			if (other.length != alternatives.length)
+				return false;
+			for (int i = 0; i < other.length; i++)
+				if (other[i] != alternatives[i])
+					return false;
+			return true;
+		}
+	}
+
+	public static final class Star extends Dre {
+		private final Dre expression;
+
+		Star(Dre expression) {
+			super(31 * 5 + expression.hashCode(), expression.length() + 3);
+			this.expression = expression;
+		}
+
+		public Dre getExpression() {
+			return expression;
+		}
+
+		@Override
+		boolean isAtomic() {
+			return true;
+		}
+
+		@Override
+		void expand(ArrayDeque<Object> stack) {
+			stack.push(")*");
+			stack.push(expression);
+			stack.push("(");
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Star && ((Star) obj).expression == expression;
+		}
+	}
+
+	public static final class Optional extends Dre {
+		private final Dre expression;
+
+		Optional(Dre expression) {
+			super(31 * 6 + expression.hashCode(), expression.length() + 3);
+			this.expression = expression;
+		}
+
+		public Dre getExpression() {
+			return expression;
+		}
+
+		@Override
+		boolean isAtomic() {
+			return true;
+		}
+
+		@Override
+		void expand(ArrayDeque<Object> stack) {
+			stack.push(")?");
+			stack.push(expression);
+			stack.push("(");
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Optional && ((Optional) obj).expression == expression;
+		}
+	}
+}
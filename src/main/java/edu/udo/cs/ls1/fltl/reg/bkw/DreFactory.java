@@ -0,0 +1,93 @@
+package edu.udo.cs.ls1.fltl.reg.bkw;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/***
+ * Builds {@link Dre} expressions. Every expression exists only once per
+ * factory (hash consing), so equal sub-expressions are shared and can be
+ * compared by identity. The factory is thread-safe.
+ *
+ * @author Kai Sauerwald
+ *
+ */
+public class DreFactory {
+
+	private final Dre epsilon = new Dre.Epsilon();
+	private final Dre empty = new Dre.Empty();
+
+	private final ConcurrentHashMap<Dre, Dre> nodes = new ConcurrentHashMap<>();
+
+	private Dre intern(Dre e) {
+		Dre known = nodes.putIfAbsent(e, e);
+		return known == null ? e : known;
+	}
+
+	public Dre epsilon() {
+		return epsilon;
+	}
+
+	public Dre empty() {
+		return empty;
+	}
+
+	/***
+	 *
+	 * @param a
+	 *            a symbol, it is written as a.toString()
+	 * @return the expression of the symbol
+	 */
+	public Dre symbol(Object a) {
+		return intern(new Dre.Symbol(a, a.toString()));
+	}
+
+	/***
+	 *
+	 * @param left
+	 *            an expression of this factory
+	 * @param right
+	 *            an expression of this factory
+	 * @return the concatenation of left and right
+	 */
+	public Dre concat(Dre left, Dre right) {
+		return intern(new Dre.Concat(left, right));
+	}
+
+	/***
+	 *
+	 * @param alternatives
+	 *            expressions of this factory
+	 * @return the union of the alternatives, in the given order
+	 */
+	public Dre union(List<Dre> alternatives) {
+		return intern(new Dre.Union(alternatives.toArray(new Dre[alternatives.size()])));
+	}
+
+	/***
+	 *
+	 * @param e
+	 *            an expression of this factory
+	 * @return e*
+	 */
+	public Dre star(Dre e) {
+		return intern(new Dre.Star(e));
+	}
+
+	/***
+	 *
+	 * @param e
+	 *            an expression of this factory
+	 * @return e?
+	 */
+	public Dre optional(Dre e) {
+		return intern(new Dre.Optional(e));
+	}
+
+	/***
+	 *
+	 * @return the number of distinct expressions built by this factory
+	 */
+	public int size() {
+		return nodes.size() + 2;
+	}
+}
@@ -0,0 +1,60 @@
+package edu.udo.cs.ls1.fltl.reg.bkw;
+
+import java.util.Collections;
+import java.util.List;
+
+/***
+ * Thrown by {@link BKW} if the language of an automata is not
+ * one-unambiguous, so there is no deterministic regular expression for it.
+ * 
+ * @author Kai Sauerwald
+ *
+ */
+public class NotOneUnambiguousException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	/***
+	 * The condition of the algorithm from Brüggemann-Klein and Wood that
+	 * fails.
+	 */
+	public enum Reason {
+		/***
+		 * Two gates of an orbit behave differently.
+		 */
+		ORBIT_PROPERTY,
+		/***
+		 * An automata with a single orbit has no consistent symbol.
+		 */
+		CONSISTENCY
+	}
+
+	private final Reason reason;
+	private final List<?> evidence;
+
+	/***
+	 * 
+	 * @param reason
+	 * @param evidence
+	 *            the states that show the failure, see {@link #getEvidence()}
+	 * @param message
+	 */
+	public NotOneUnambiguousException(Reason reason, List<?> evidence, String message) {
+		super(message);
+		this.reason = reason;
+		this.evidence = Collections.unmodifiableList(evidence);
+	}
+
+	public Reason getReason() {
+		return reason;
+	}
+
+	/***
+	 * 
+	 * @return the two gates that behave differently for
+	 *         {@link Reason#ORBIT_PROPERTY}, the accepting states of the orbit
+	 *         for {@link Reason#CONSISTENCY}
+	 */
+	public List<?> getEvidence() {
+		return evidence;
+	}
+}
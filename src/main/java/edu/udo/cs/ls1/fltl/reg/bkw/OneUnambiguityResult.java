@@ -0,0 +1,78 @@
+package edu.udo.cs.ls1.fltl.reg.bkw;
+
+import java.util.Collections;
+import java.util.List;
+
+import edu.udo.cs.ls1.fltl.reg.bkw.NotOneUnambiguousException.Reason;
+
+/***
+ * The result of {@link BKW#isOneUnambiguous}. If the language is not
+ * one-unambiguous, it tells which condition fails and for which states.
+ * 
+ * @author Kai Sauerwald
+ *
+ * @param <S>
+ *            The type of the states
+ */
+public class OneUnambiguityResult<S> {
+
+	/***
+	 * the failure, or null if the language is one-unambiguous
+	 */
+	private final NotOneUnambiguousException failure;
+
+	private OneUnambiguityResult(NotOneUnambiguousException failure) {
+		this.failure = failure;
+	}
+
+	static <S> OneUnambiguityResult<S> success() {
+		return new OneUnambiguityResult<>(null);
+	}
+
+	static <S> OneUnambiguityResult<S> failure(NotOneUnambiguousException failure) {
+		return new OneUnambiguityResult<>(failure);
+	}
+
+	/***
+	 * 
+	 * @return true, if there is a deterministic regular expression for the
+	 *         language
+	 */
+	public boolean isOneUnambiguous() {
+		return failure == null;
+	}
+
+	/***
+	 * 
+	 * @return the failing condition, or null if the language is
+	 *         one-unambiguous
+	 */
+	public Reason getReason() {
+		return failure == null ? null : failure.getReason();
+	}
+
+	/***
+	 * 
+	 * @return the states that show the failure, see
+	 *         {@link NotOneUnambiguousException#getEvidence()}. Empty if the
+	 *         language is one-unambiguous.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<S> getEvidence() {
+		return failure == null ? Collections.emptyList() : (List<S>) failure.getEvidence();
+	}
+
+	/***
+	 * 
+	 * @return the failure as exception, or null if the language is
+	 *         one-unambiguous
+	 */
+	public NotOneUnambiguousException getFailure() {
+		return failure;
+	}
+
+	@Override
+	public String toString() {
+		return failure == null ? "one-unambiguous" : failure.getMessage();
+	}
+}
@@ -0,0 +1,147 @@
+package edu.udo.cs.ls1.fltl.reg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import edu.udo.cs.ls1.fltl.Tuple;
+
+/***
+ * Checks the transition table and the outgoing and incoming indexes of
+ * {@link FiniteStateAutomata} against a map of the transitions.
+ *
+ * @author Kai Sauerwald
+ *
+ */
+public class FiniteStateAutomataTest {
+
+	private static final int STATES = 20;
+	private static final String SYMBOLS = "abcd";
+
+	@Test
+	public void replacedTransitionLeavesTheOldTarget() {
+		FiniteStateAutomata<String, Character> fsa = new FiniteStateAutomata<>("p");
+		fsa.addTransition("p", 'a', "q");
+		fsa.addTransition("p", 'a', "r");
+		assertEquals("r", fsa.step("p", 'a'));
+		assertEquals(1, fsa.getTransitions("p").size());
+		assertTrue(fsa.getIncomingTransitions("q").isEmpty());
+		assertEquals(1, fsa.getIncomingTransitions("r").size());
+		assertTrue(fsa.getIncomingTransitions("r").contains(new Tuple<>('a', "p")));
+	}
+
+	@Test
+	public void removeAndReinsert() {
+		FiniteStateAutomata<String, Character> fsa = new FiniteStateAutomata<>("p");
+		fsa.addTransition("p", 'a', "q");
+		fsa.RemoveTransition("p", 'a');
+		assertNull(fsa.step("p", 'a'));
+		assertTrue(fsa.getTransitions("p").isEmpty());
+		assertTrue(fsa.getIncomingTransitions("q").isEmpty());
+		assertTrue(fsa.getTransitions().isEmpty());
+		// removing it again or an unknown symbol changes nothing
+		fsa.RemoveTransition("p", 'a');
+		fsa.RemoveTransition("p", 'z');
+		fsa.addTransition("p", 'a', "q");
+		assertEquals("q", fsa.step("p", 'a'));
+		assertEquals(1, fsa.getIncomingTransitions("q").size());
+	}
+
+	/***
+	 * Random additions, replacements and removals, after each the indexes
+	 * have to show exactly the transitions of the model.
+	 */
+	@Test
+	public void randomOperationsAgreeWithTheModel() {
+		Random rnd = new Random(7);
+		FiniteStateAutomata<Integer, Character> fsa = new FiniteStateAutomata<>(0);
+		Map<Tuple<Integer, Character>, Integer> model = new HashMap<>();
+		for (int step = 0; step < 3000; step++) {
+			int p = rnd.nextInt(STATES);
+			char a = SYMBOLS.charAt(rnd.nextInt(SYMBOLS.length()));
+			if (rnd.nextInt(3) == 0) {
+				fsa.RemoveTransition(p, a);
+				model.remove(new Tuple<>(p, a));
+			} else {
+				int q = rnd.nextInt(STATES);
+				fsa.addTransition(p, a, q);
+				model.put(new Tuple<>(p, a), q);
+			}
+			if (step % 100 == 0)
+				assertAgrees(model, fsa);
+		}
+		assertAgrees(model, fsa);
+		assertAgrees(model, new FiniteStateAutomata<>(fsa));
+	}
+
+	@Test
+	public void copyIsIndependent() {
+		FiniteStateAutomata<Integer, Character> fsa = new FiniteStateAutomata<>(0);
+		fsa.addTransition(0, 'a', 1);
+		FiniteStateAutomata<Integer, Character> copy = new FiniteStateAutomata<>(fsa);
+		copy.addTransition(1, 'b', 0);
+		copy.RemoveTransition(0, 'a');
+		assertEquals(Integer.valueOf(1), fsa.step(0, 'a'));
+		assertNull(fsa.step(1, 'b'));
+		assertTrue(fsa.getIncomingTransitions(0).isEmpty());
+		assertNull(copy.step(0, 'a'));
+	}
+
+	@Test
+	public void removeUnreachableDropsTheirTransitions() {
+		FiniteStateAutomata<Integer, Character> fsa = new FiniteStateAutomata<>(0);
+		fsa.addTransition(0, 'a', 1);
+		fsa.addTransition(2, 'a', 1);
+		fsa.addTransition(2, 'b', 3);
+		fsa.setAccepting(3, true);
+		fsa.removeUnreachable();
+		assertEquals(new HashSet<>(Arrays.asList(0, 1)), fsa.getStates());
+		assertEquals(1, fsa.getIncomingTransitions(1).size());
+		assertEquals(1, fsa.getTransitions().size());
+		assertFalse(fsa.isAccepting(3));
+	}
+
+	private static void assertAgrees(Map<Tuple<Integer, Character>, Integer> model,
+			FiniteStateAutomata<Integer, Character> fsa) {
+		assertEquals(model.size(), fsa.getTransitions().size());
+		int[] visited = { 0 };
+		fsa.forEachTransition((p, a, q) -> {
+			assertEquals(model.get(new Tuple<>(p, a)), q);
+			visited[0]++;
+		});
+		assertEquals(model.size(), visited[0]);
+
+		Map<Integer, Set<Tuple<Character, Integer>>> out = new HashMap<>();
+		Map<Integer, Set<Tuple<Character, Integer>>> in = new HashMap<>();
+		for (int q = 0; q < STATES; q++) {
+			out.put(q, new HashSet<>());
+			in.put(q, new HashSet<>());
+		}
+		for (Map.Entry<Tuple<Integer, Character>, Integer> e : model.entrySet()) {
+			int p = e.getKey().first();
+			char a = e.getKey().second();
+			out.get(p).add(new Tuple<>(a, e.getValue()));
+			in.get(e.getValue()).add(new Tuple<>(a, p));
+		}
+		for (int q = 0; q < STATES; q++) {
+			for (int i = 0; i < SYMBOLS.length(); i++) {
+				char a = SYMBOLS.charAt(i);
+				assertEquals(model.get(new Tuple<>(q, a)), fsa.step(q, a));
+			}
+			assertEquals(out.get(q), new HashSet<>(fsa.getTransitions(q)));
+			assertEquals(out.get(q).size(), fsa.getTransitions(q).size());
+			assertEquals(in.get(q), new HashSet<>(fsa.getIncomingTransitions(q)));
+			assertEquals(in.get(q).size(), fsa.getIncomingTransitions(q).size());
+		}
+	}
+}
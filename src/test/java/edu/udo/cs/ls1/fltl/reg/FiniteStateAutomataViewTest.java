@@ -0,0 +1,147 @@
+package edu.udo.cs.ls1.fltl.reg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import edu.udo.cs.ls1.fltl.Tuple;
+
+/***
+ * Checks {@link FiniteStateAutomataView} and views of views against the
+ * transitions of the base automata that the view has to show.
+ *
+ * @author Kai Sauerwald
+ *
+ */
+public class FiniteStateAutomataViewTest {
+
+	private static final int STATES = 15;
+	private static final String SYMBOLS = "abc";
+
+	/***
+	 * Random chains of restrictions and removals, after each the view has to
+	 * show exactly the transitions between its states that are not removed,
+	 * and the incoming transitions have to be the outgoing ones read
+	 * backwards.
+	 */
+	@Test
+	public void chainedViewsAgreeWithTheModel() {
+		Random rnd = new Random(11);
+		for (int run = 0; run < 50; run++) {
+			FiniteStateAutomata<Integer, Character> fsa = randomAutomata(rnd);
+			FiniteStateAutomataView<Integer, Character> view = FiniteStateAutomataView.of(fsa);
+			Set<Integer> states = new HashSet<>(fsa.getStates());
+			Map<Integer, Set<Character>> removed = new HashMap<>();
+			assertAgrees(fsa, states, removed, view);
+
+			for (int step = 0; step < 4; step++) {
+				if (rnd.nextBoolean()) {
+					Set<Integer> subset = new HashSet<>();
+					for (Integer q : states)
+						if (rnd.nextInt(4) != 0)
+							subset.add(q);
+					view = view.restrict(subset);
+					states = subset;
+				} else {
+					Map<Integer, Set<Character>> remove = new HashMap<>();
+					for (Integer q : states)
+						for (int i = 0; i < SYMBOLS.length(); i++)
+							if (rnd.nextInt(4) == 0)
+								remove.computeIfAbsent(q, k -> new HashSet<>()).add(SYMBOLS.charAt(i));
+					view = view.removeTransitions(remove);
+					remove.forEach((q, symbols) -> removed.computeIfAbsent(q, k -> new HashSet<>()).addAll(symbols));
+				}
+				assertAgrees(fsa, states, removed, view);
+			}
+		}
+	}
+
+	@Test
+	public void restrictDropsTheAcceptingStatesOutside() {
+		FiniteStateAutomata<Integer, Character> fsa = new FiniteStateAutomata<>(0);
+		fsa.addTransition(0, 'a', 1);
+		fsa.addTransition(1, 'a', 2);
+		fsa.setAccepting(2, true);
+		Set<Integer> states = new HashSet<>();
+		states.add(0);
+		states.add(1);
+		FiniteStateAutomataView<Integer, Character> view = FiniteStateAutomataView.of(fsa).restrict(states);
+		assertTrue(view.getAcceptingStates().isEmpty());
+		assertFalse(view.isAccepting(2));
+		assertNull(view.step(1, 'a'));
+
+		Set<Integer> accepting = new HashSet<>();
+		accepting.add(1);
+		view = view.withAcceptingStates(accepting).withInitialState(1);
+		assertEquals(Integer.valueOf(1), view.getInitialState());
+		assertEquals(accepting, view.restrict(states).getAcceptingStates());
+		assertTrue(view.restrict(new HashSet<>()).getAcceptingStates().isEmpty());
+	}
+
+	private static FiniteStateAutomata<Integer, Character> randomAutomata(Random rnd) {
+		FiniteStateAutomata<Integer, Character> fsa = new FiniteStateAutomata<>(0);
+		for (int q = 0; q < STATES; q++) {
+			fsa.addState(q);
+			for (int i = 0; i < SYMBOLS.length(); i++)
+				if (rnd.nextInt(3) != 0)
+					fsa.addTransition(q, SYMBOLS.charAt(i), rnd.nextInt(STATES));
+			fsa.setAccepting(q, rnd.nextInt(3) == 0);
+		}
+		return fsa;
+	}
+
+	private static void assertAgrees(FiniteStateAutomata<Integer, Character> base, Set<Integer> states,
+			Map<Integer, Set<Character>> removed, FiniteStateAutomataView<Integer, Character> view) {
+		Map<Integer, Set<Tuple<Character, Integer>>> out = new HashMap<>();
+		Map<Integer, Set<Tuple<Character, Integer>>> in = new HashMap<>();
+		Set<Tuple<Integer, Character>> all = new HashSet<>();
+		for (int q = 0; q < STATES; q++) {
+			out.put(q, new HashSet<>());
+			in.put(q, new HashSet<>());
+		}
+		base.forEachTransition((p, a, q) -> {
+			if (states.contains(p) && states.contains(q) && !removed.getOrDefault(p, new HashSet<>()).contains(a)) {
+				out.get(p).add(new Tuple<>(a, q));
+				in.get(q).add(new Tuple<>(a, p));
+				all.add(new Tuple<>(p, a));
+			}
+		});
+
+		assertEquals(states, view.getStates());
+		assertEquals(all.size(), view.getTransitions().size());
+		assertEquals(all.isEmpty(), view.getTransitions().isEmpty());
+		Set<Tuple<Integer, Character>> visited = new HashSet<>();
+		view.forEachTransition((p, a, q) -> {
+			assertEquals(view.step(p, a), q);
+			assertTrue(visited.add(new Tuple<>(p, a)));
+		});
+		assertEquals(all, visited);
+
+		for (int q = 0; q < STATES; q++) {
+			for (int i = 0; i < SYMBOLS.length(); i++) {
+				char a = SYMBOLS.charAt(i);
+				Integer expected = null;
+				for (Tuple<Character, Integer> t : out.get(q))
+					if (t.first() == a)
+						expected = t.second();
+				assertEquals(expected, view.step(q, a));
+			}
+			assertEquals(out.get(q), new HashSet<>(view.getTransitions(q)));
+			assertEquals(out.get(q).size(), view.getTransitions(q).size());
+			assertEquals(out.get(q).isEmpty(), view.getTransitions(q).isEmpty());
+			assertEquals(in.get(q), new HashSet<>(view.getIncomingTransitions(q)));
+			assertEquals(in.get(q).size(), view.getIncomingTransitions(q).size());
+			assertEquals(in.get(q).isEmpty(), view.getIncomingTransitions(q).isEmpty());
+			assertEquals(states.contains(q) && base.isAccepting(q), view.isAccepting(q));
+		}
+	}
+}
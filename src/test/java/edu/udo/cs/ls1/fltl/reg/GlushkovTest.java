@@ -0,0 +1,91 @@
+package edu.udo.cs.ls1.fltl.reg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.RegExp;
+
+/***
+ * Checks the parser and the automata of {@link Glushkov} against the automata
+ * of brics for the same expression.
+ *
+ * @author Kai Sauerwald
+ *
+ */
+public class GlushkovTest {
+
+	private static final String[] EXPRESSIONS = { "a", "()", "a*", "(a|b)*", "(a|b)*a(a|b){3}", "(ab|ba)*", "a*b*c*",
+			"(a|b)*abb", "a+b?", "(a|())c", "a{2}", "a{2,}", "(ab){1,3}c", "a{0,2}b{0}", "[a-b]*c[ac]?", "\\a\\|b",
+			"((a|b)(a|b))*", "(a|b|c)*(abc|cba)", "(a*b*)*" };
+
+	private static final String LETTERS = "abc|";
+
+	@Test
+	public void agreesWithBrics() {
+		for (String regexp : EXPRESSIONS) {
+			Automaton aut = new RegExp(regexp).toAutomaton();
+			LazyDfaMatcher<Integer, Character> matcher = new LazyDfaMatcher<>(
+					NondeterministicFiniteStateAutomata.fromRegExp(regexp), 16);
+			for (String w : words(6))
+				assertEquals(regexp + " on " + w, aut.run(w), matcher.accepts(w));
+		}
+	}
+
+	/***
+	 * One state per position, that is per occurrence of a character (class)
+	 * after the repetitions are unfolded, plus the initial state.
+	 */
+	@Test
+	public void oneStatePerPosition() {
+		assertStates(1, "()");
+		assertStates(2, "a*");
+		assertStates(6, "(a|b)*abb");
+		assertStates(2, "[a-z]");
+		assertStates(4, "a{3}");
+		assertStates(4, "a{2,}");
+		assertStates(5, "(ab){1,2}");
+	}
+
+	@Test
+	public void rejectsUnsupportedOperators() {
+		for (String regexp : new String[] { "a&b", "~a", ".", "[^a]", "a#", "@", "<1-3>", "\"a\"" })
+			assertRejected(regexp);
+	}
+
+	@Test
+	public void rejectsInvalidExpressions() {
+		for (String regexp : new String[] { "(a", "a)", "[a", "[]", "[b-a]", "a{", "a{2", "a{x}", "a{3,2}", "a\\" })
+			assertRejected(regexp);
+	}
+
+	private static void assertStates(int expected, String regexp) {
+		assertEquals(regexp, expected, NondeterministicFiniteStateAutomata.fromRegExp(regexp).getStates().size());
+	}
+
+	private static void assertRejected(String regexp) {
+		try {
+			NondeterministicFiniteStateAutomata.fromRegExp(regexp);
+			fail(regexp);
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	private static List<String> words(int maxLength) {
+		List<String> result = new ArrayList<>();
+		result.add("");
+		for (int i = 0; i < result.size(); i++) {
+			String w = result.get(i);
+			if (w.length() < maxLength)
+				for (int c = 0; c < LETTERS.length(); c++)
+					result.add(w + LETTERS.charAt(c));
+		}
+		return result;
+	}
+}
@@ -0,0 +1,101 @@
+package edu.udo.cs.ls1.fltl.reg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.RegExp;
+import dk.brics.automaton.State;
+import edu.udo.cs.ls1.fltl.Tuple;
+
+/***
+ * Checks {@link Hopcroft#minimize(ReadOnlyFiniteStateAutomata)} against the
+ * minimization of brics.
+ *
+ * @author Kai Sauerwald
+ *
+ */
+public class HopcroftTest {
+
+	private static final String[] EXPRESSIONS = { "a", "a*", "(a|b)*", "(a|b)*a(a|b){3}", "(ab|ba)*", "a*b*c*",
+			"(a|b)*abb", "((a|b)(a|b))*", "a(b|c)*a|b(a|c)*b", "(aa|aaa)*", "[a-c]*b[a-c]?", "(a|b|c)*(abc|cba)" };
+
+	private static final String LETTERS = "abc";
+
+	/***
+	 * The determinized, but not minimized automata of brics is minimized to
+	 * as many states as brics gives, with the same language.
+	 */
+	@Test
+	public void agreesWithBrics() {
+		for (String regexp : EXPRESSIONS) {
+			Automaton aut = new RegExp(regexp).toAutomaton(false);
+			aut.determinize();
+			Automaton minimal = aut.clone();
+			minimal.minimize();
+
+			FiniteStateAutomata<State, CharRange> result = Hopcroft.minimize(CharRange.fromAutomaton(aut));
+			assertEquals(regexp, minimal.getNumberOfStates(), result.getStates().size());
+			for (String w : words(6))
+				assertEquals(regexp + " on " + w, minimal.run(w), accepts(result, w));
+		}
+	}
+
+	@Test
+	public void mergesEquivalentStates() {
+		// 0 -a-> 1 -a-> 2 -a-> 1, all accepting, is a*
+		FiniteStateAutomata<Integer, Character> fsa = new FiniteStateAutomata<>(0);
+		fsa.addTransition(0, 'a', 1);
+		fsa.addTransition(1, 'a', 2);
+		fsa.addTransition(2, 'a', 1);
+		for (int q = 0; q < 3; q++)
+			fsa.setAccepting(q, true);
+		FiniteStateAutomata<Integer, Character> result = fsa.minimize();
+		assertEquals(1, result.getStates().size());
+		assertEquals(result.getInitialState(), result.step(result.getInitialState(), 'a'));
+		assertTrue(result.isAccepting(result.getInitialState()));
+	}
+
+	@Test
+	public void dropsUnreachableAndDeadStates() {
+		FiniteStateAutomata<Integer, Character> fsa = new FiniteStateAutomata<>(0);
+		fsa.addTransition(0, 'a', 1);
+		fsa.addTransition(0, 'b', 2); // 2 is dead
+		fsa.addTransition(2, 'a', 2);
+		fsa.addTransition(3, 'a', 1); // 3 is unreachable
+		fsa.setAccepting(1, true);
+		FiniteStateAutomata<Integer, Character> result = fsa.minimize();
+		assertEquals(2, result.getStates().size());
+		assertEquals(1, result.getTransitions().size());
+		assertTrue(result.isAccepting(result.step(result.getInitialState(), 'a')));
+	}
+
+	private static List<String> words(int maxLength) {
+		List<String> result = new ArrayList<>();
+		result.add("");
+		for (int i = 0; i < result.size(); i++) {
+			String w = result.get(i);
+			if (w.length() < maxLength)
+				for (int c = 0; c < LETTERS.length(); c++)
+					result.add(w + LETTERS.charAt(c));
+		}
+		return result;
+	}
+
+	private static <S> boolean accepts(FiniteStateAutomata<S, CharRange> fsa, String word) {
+		S q = fsa.getInitialState();
+		for (int i = 0; i < word.length() && q != null; i++) {
+			S next = null;
+			for (Tuple<CharRange, S> t : fsa.getTransitions(q))
+				if (t.first().contains(word.charAt(i)))
+					next = t.second();
+			q = next;
+		}
+		return q != null && fsa.isAccepting(q);
+	}
+}
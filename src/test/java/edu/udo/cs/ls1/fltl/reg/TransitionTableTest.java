@@ -0,0 +1,144 @@
+package edu.udo.cs.ls1.fltl.reg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/***
+ * Checks {@link TransitionTable} against a {@link HashMap}, in particular the
+ * backward shift of {@link TransitionTable#remove(long)} and the resizing.
+ *
+ * @author Kai Sauerwald
+ *
+ */
+public class TransitionTableTest {
+
+	@Test
+	public void emptyTableHasNoEntries() {
+		TransitionTable table = new TransitionTable();
+		assertEquals(0, table.size());
+		assertEquals(TransitionTable.NONE, table.get(TransitionTable.pack(0, 'a')));
+		assertEquals(TransitionTable.NONE, table.remove(TransitionTable.pack(0, 'a')));
+	}
+
+	@Test
+	public void packKeepsStateAndSymbol() {
+		long key = TransitionTable.pack(123456, Character.MAX_VALUE);
+		assertEquals(123456, TransitionTable.stateOf(key));
+		assertEquals(Character.MAX_VALUE, TransitionTable.symbolOf(key));
+		assertTrue(key >= 0);
+	}
+
+	@Test
+	public void putReplacesTheTarget() {
+		TransitionTable table = new TransitionTable();
+		long key = TransitionTable.pack(1, 'a');
+		assertEquals(TransitionTable.NONE, table.put(key, 2));
+		assertEquals(2, table.put(key, 3));
+		assertEquals(3, table.get(key));
+		assertEquals(1, table.size());
+	}
+
+	@Test
+	public void removeAndReinsert() {
+		TransitionTable table = new TransitionTable();
+		long key = TransitionTable.pack(1, 'a');
+		table.put(key, 2);
+		assertEquals(2, table.remove(key));
+		assertEquals(0, table.size());
+		assertEquals(TransitionTable.NONE, table.get(key));
+		assertEquals(TransitionTable.NONE, table.remove(key));
+		assertEquals(TransitionTable.NONE, table.put(key, 4));
+		assertEquals(4, table.get(key));
+	}
+
+	@Test
+	public void resizeKeepsAllEntries() {
+		TransitionTable table = new TransitionTable();
+		int n = 100000;
+		for (int i = 0; i < n; i++)
+			table.put(TransitionTable.pack(i, i % 7), i + 1);
+		assertEquals(n, table.size());
+		assertEquals(0, table.capacity() & (table.capacity() - 1));
+		assertTrue(table.capacity() >= 2 * n);
+		for (int i = 0; i < n; i++)
+			assertEquals(i + 1, table.get(TransitionTable.pack(i, i % 7)));
+		assertEquals(TransitionTable.NONE, table.get(TransitionTable.pack(n, 0)));
+	}
+
+	/***
+	 * Removing every other entry of a full table must not break the probe
+	 * sequences of the remaining ones.
+	 */
+	@Test
+	public void removeKeepsTheOtherEntries() {
+		TransitionTable table = new TransitionTable();
+		int n = 5000;
+		for (int i = 0; i < n; i++)
+			table.put(TransitionTable.pack(i / 3, i % 3), i);
+		for (int i = 0; i < n; i += 2)
+			assertEquals(i, table.remove(TransitionTable.pack(i / 3, i % 3)));
+		assertEquals(n / 2, table.size());
+		for (int i = 0; i < n; i++)
+			assertEquals(i % 2 == 0 ? TransitionTable.NONE : i, table.get(TransitionTable.pack(i / 3, i % 3)));
+	}
+
+	/***
+	 * Random puts and removes on a small key space, so the probe sequences
+	 * are long and often cross each other.
+	 */
+	@Test
+	public void randomOperationsAgreeWithHashMap() {
+		Random rnd = new Random(42);
+		TransitionTable table = new TransitionTable();
+		Map<Long, Integer> expected = new HashMap<>();
+		for (int step = 0; step < 200000; step++) {
+			long key = TransitionTable.pack(rnd.nextInt(64), rnd.nextInt(8));
+			if (rnd.nextInt(3) == 0) {
+				Integer old = expected.remove(key);
+				assertEquals(old == null ? TransitionTable.NONE : old, table.remove(key));
+			} else {
+				int value = rnd.nextInt(1000);
+				Integer old = expected.put(key, value);
+				assertEquals(old == null ? TransitionTable.NONE : old, table.put(key, value));
+			}
+			assertEquals(expected.size(), table.size());
+		}
+		for (int q = 0; q < 64; q++)
+			for (int a = 0; a < 8; a++) {
+				Integer v = expected.get(TransitionTable.pack(q, a));
+				assertEquals(v == null ? TransitionTable.NONE : v, table.get(TransitionTable.pack(q, a)));
+			}
+
+		// the slots show exactly the entries
+		int used = 0;
+		for (int i = 0; i < table.capacity(); i++) {
+			if (!table.isUsed(i))
+				continue;
+			used++;
+			assertEquals(expected.get(table.keyAt(i)).intValue(), table.valueAt(i));
+		}
+		assertEquals(expected.size(), used);
+	}
+
+	@Test
+	public void cloneIsIndependent() {
+		TransitionTable table = new TransitionTable();
+		long a = TransitionTable.pack(0, 'a');
+		long b = TransitionTable.pack(0, 'b');
+		table.put(a, 1);
+		TransitionTable copy = table.clone();
+		copy.put(b, 2);
+		copy.remove(a);
+		assertEquals(1, table.get(a));
+		assertEquals(TransitionTable.NONE, table.get(b));
+		assertEquals(1, table.size());
+		assertEquals(TransitionTable.NONE, copy.get(a));
+		assertEquals(2, copy.get(b));
+	}
+}